@@ -15,6 +15,9 @@ import {
 } from 'react-native';
 import LatexRenderer from './src/components/LatexRenderer';
 import PerformanceTestScreen from './src/components/PerformanceTestScreen';
+import useLatexPrefetch from './src/components/useLatexPrefetch';
+import LatexParagraph from './src/components/LatexParagraph';
+import { parseContent } from './src/utils/parseContent';
 
 const PlaygroundScreen = ({ onBack }: { onBack: () => void }) => {
   const [latexInput, setLatexInput] = useState(
@@ -278,124 +281,6 @@ const TEST_CASES = [
   },
 ];
 
-interface ContentPart {
-  type: 'text' | 'latex';
-  content: string;
-  display?: boolean;
-}
-
-const parseContent = (content: string): ContentPart[] => {
-  const parts: ContentPart[] = [];
-  let currentIndex = 0;
-  const displayRegex = /\$\$([\s\S]*?)\$\$/g;
-  const inlineRegex = /\$([^\$]+?)\$/g;
-
-  interface MathMatch {
-    start: number;
-    end: number;
-    content: string;
-    display: boolean;
-  }
-
-  const allMatches: MathMatch[] = [];
-  let match: RegExpExecArray | null;
-
-  while ((match = displayRegex.exec(content)) !== null) {
-    allMatches.push({
-      start: match.index,
-      end: match.index + match[0].length,
-      content: match[1].trim(),
-      display: true,
-    });
-  }
-
-  while ((match = inlineRegex.exec(content)) !== null) {
-    const insideDisplay = allMatches.some(
-      dm => match!.index > dm.start && match!.index < dm.end,
-    );
-    if (!insideDisplay) {
-      const afterDollar = match[1];
-      if (/^\d+(\.\d+)?$/.test(afterDollar.trim())) {
-        continue;
-      }
-
-      allMatches.push({
-        start: match.index,
-        end: match.index + match[0].length,
-        content: match[1].trim(),
-        display: false,
-      });
-    }
-  }
-
-  allMatches.sort((a, b) => a.start - b.start);
-
-  allMatches.forEach(m => {
-    if (m.start > currentIndex) {
-      parts.push({
-        type: 'text',
-        content: content.substring(currentIndex, m.start),
-      });
-    }
-    parts.push({
-      type: 'latex',
-      content: m.content,
-      display: m.display,
-    });
-    currentIndex = m.end;
-  });
-
-  if (currentIndex < content.length) {
-    parts.push({
-      type: 'text',
-      content: content.substring(currentIndex),
-    });
-  }
-
-  if (parts.length === 0) {
-    parts.push({ type: 'text', content });
-  }
-
-  return parts;
-};
-
-const ContentRenderer = ({
-  content,
-  textColor,
-}: {
-  content: string;
-  textColor: string;
-}) => {
-  const parts = parseContent(content);
-
-  return (
-    <View style={styles.contentContainer}>
-      {parts.map((part, index) => {
-        if (part.type === 'latex') {
-          const isDisplay = part.display;
-          const fontSize = isDisplay ? 45 : 40;
-          return (
-            <LatexRenderer
-              key={index}
-              latex={part.content}
-              fontSize={fontSize}
-              textColor={textColor}
-              style={isDisplay ? styles.displayMath : styles.inlineMathItem}
-              showErrorInline={true}
-            />
-          );
-        } else {
-          return (
-            <Text key={index} style={[styles.textItem, { color: textColor }]}>
-              {part.content}
-            </Text>
-          );
-        }
-      })}
-    </View>
-  );
-};
-
 const App = () => {
   const [showPerformanceTest, setShowPerformanceTest] = useState(false);
   const [showPlayground, setShowPlayground] = useState(false);
@@ -403,6 +288,14 @@ const App = () => {
   const textColor = isDarkMode ? '#FFFFFF' : '#000000';
   const backgroundColor = isDarkMode ? '#1a1a1a' : '#f5f5f5';
   const cardBackgroundColor = isDarkMode ? '#2d2d2d' : '#ffffff';
+  const onViewableItemsChanged = useLatexPrefetch(TEST_CASES, item =>
+    parseContent(item.content)
+      .filter(part => part.type === 'latex')
+      .map(part => ({
+        latex: part.content,
+        fontSize: part.display ? 45 : 40,
+      })),
+  );
 
   if (showPerformanceTest) {
     return (
@@ -469,7 +362,14 @@ const App = () => {
                 <Text style={styles.errorBadge}>⚠️ Error Test</Text>
               )}
             </View>
-            <ContentRenderer content={item.content} textColor={textColor} />
+            <LatexParagraph
+              text={item.content}
+              fontSize={20}
+              mathFontSize={40}
+              displayMathFontSize={45}
+              textColor={textColor}
+              style={styles.paragraph}
+            />
 
             <View
               style={[
@@ -502,6 +402,7 @@ const App = () => {
         maxToRenderPerBatch={10}
         windowSize={10}
         initialNumToRender={5}
+        onViewableItemsChanged={onViewableItemsChanged}
       />
     </SafeAreaView>
   );
@@ -587,10 +488,7 @@ const styles = StyleSheet.create({
     paddingVertical: 2,
     borderRadius: 10,
   },
-  contentContainer: {
-    flexDirection: 'column',
-    alignItems: 'flex-start',
-    width: '100%',
+  paragraph: {
     paddingHorizontal: 8,
   },
   text: {
@@ -599,12 +497,6 @@ const styles = StyleSheet.create({
     marginVertical: 8,
     textAlign: 'center',
   },
-  displayMath: {
-    alignSelf: 'flex-start',
-    marginVertical: 16,
-    paddingVertical: 8,
-    minHeight: 60,
-  },
   wrapContainer: {
     flexDirection: 'column',
     alignItems: 'flex-start',
@@ -616,18 +508,6 @@ const styles = StyleSheet.create({
     paddingVertical: 8,
     minHeight: 50,
   },
-  inlineMathItem: {
-    alignSelf: 'flex-start',
-    marginVertical: 10,
-    minHeight: 40,
-  },
-  textItem: {
-    fontSize: 20,
-    lineHeight: 34,
-    color: '#000000',
-    textAlign: 'left',
-    paddingHorizontal: 0,
-  },
   codeContainer: {
     marginTop: 12,
     padding: 12,
@@ -0,0 +1,240 @@
+package com.latexrenderer.latex;
+
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LaTeXRendererModule - TurboModule rendering equations to image files.
+ *
+ * Used by LaTeXView, which displays the result with React Native's Image:
+ * - Rendering and caching are handled by {@link LatexImageRenderer}
+ * - Resolves with the file URI and intrinsic size in dp, so the image can be
+ *   laid out before it is decoded
+ * - Repeat requests resolve immediately from the in-memory index
+ * - {@link #renderMany} renders a whole batch in one bridge call
+ * - Batched requests carry a JS-assigned id that {@link #cancel} accepts,
+ *   so unmounted views stop paying for renders nobody will display
+ */
+@ReactModule(name = LaTeXRendererModule.NAME)
+public class LaTeXRendererModule extends NativeLaTeXRendererSpec {
+    
+    public static final String NAME = "LaTeXRenderer";
+    
+    private static final int NO_REQUEST_ID = -1;
+    
+    private final Map<Integer, LatexImageRenderer.Request> activeRequests = new ConcurrentHashMap<>();
+    
+    public LaTeXRendererModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+    
+    @NonNull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public void renderLaTeX(String latex, ReadableMap options, Promise promise) {
+        if (latex == null || latex.trim().isEmpty()) {
+            promise.reject("E_LATEX_EMPTY", "Empty LaTeX expression");
+            return;
+        }
+        
+        LatexImageRenderer.getInstance(getReactApplicationContext()).render(latex, parseOptions(options),
+            new LatexImageRenderer.Callback() {
+                @Override
+                public void onRendered(@NonNull LatexImageRenderer.Result result) {
+                    promise.resolve(toMap(result));
+                }
+                
+                @Override
+                public void onError(@NonNull String code, @NonNull String message) {
+                    promise.reject(code, message);
+                }
+            });
+    }
+    
+    /**
+     * Renders a batch with a single bridge round trip.
+     *
+     * Identical requests share one render through {@link LatexImageRenderer}.
+     * Requests carrying a requestId can be cancelled with {@link #cancel}.
+     * The promise resolves once every request has finished or been cancelled,
+     * with one entry per request in order: { uri, width, height } or { error }.
+     */
+    @Override
+    public void renderMany(ReadableArray requests, Promise promise) {
+        final int count = requests != null ? requests.size() : 0;
+        final WritableMap[] results = new WritableMap[count];
+        List<BatchEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ReadableMap request = requests.getMap(i);
+            String latex = request != null && request.hasKey("latex") ? request.getString("latex") : null;
+            if (latex == null || latex.trim().isEmpty()) {
+                results[i] = errorMap("Empty LaTeX expression");
+                continue;
+            }
+            ReadableMap options = request.hasKey("options") ? request.getMap("options") : null;
+            int requestId = request.hasKey("requestId") ? request.getInt("requestId") : NO_REQUEST_ID;
+            entries.add(new BatchEntry(i, requestId, latex, parseOptions(options), results));
+        }
+        
+        if (entries.isEmpty()) {
+            promise.resolve(toArray(results));
+            return;
+        }
+        
+        // Callbacks arrive on pool threads; the last one to finish resolves
+        AtomicInteger remaining = new AtomicInteger(entries.size());
+        LatexImageRenderer renderer = LatexImageRenderer.getInstance(getReactApplicationContext());
+        for (BatchEntry entry : entries) {
+            entry.start(renderer, remaining, promise);
+        }
+    }
+    
+    /**
+     * Cancels renders started by {@link #renderMany}. Queued work nobody else
+     * waits for is dropped; running work stops at its next phase boundary.
+     */
+    @Override
+    public void cancel(ReadableArray requestIds) {
+        if (requestIds == null) {
+            return;
+        }
+        for (int i = 0; i < requestIds.size(); i++) {
+            LatexImageRenderer.Request request = activeRequests.remove(requestIds.getInt(i));
+            if (request != null) {
+                request.cancel();
+            }
+        }
+    }
+    
+    @Override
+    public void invalidate() {
+        super.invalidate();
+        for (LatexImageRenderer.Request request : activeRequests.values()) {
+            request.cancel();
+        }
+        activeRequests.clear();
+    }
+    
+    /** One request of a renderMany batch. */
+    private final class BatchEntry implements LatexImageRenderer.Callback {
+        
+        private final int index;
+        private final int requestId;
+        private final String latex;
+        private final LatexImageRenderer.Options options;
+        private final WritableMap[] results;
+        private final AtomicBoolean finished = new AtomicBoolean(false);
+        
+        private AtomicInteger remaining;
+        private Promise promise;
+        
+        BatchEntry(int index, int requestId, String latex, LatexImageRenderer.Options options,
+                   WritableMap[] results) {
+            this.index = index;
+            this.requestId = requestId;
+            this.latex = latex;
+            this.options = options;
+            this.results = results;
+        }
+        
+        void start(LatexImageRenderer renderer, AtomicInteger remaining, Promise promise) {
+            this.remaining = remaining;
+            this.promise = promise;
+            LatexImageRenderer.Request request = renderer.render(latex, options, this);
+            if (requestId == NO_REQUEST_ID) {
+                return;
+            }
+            activeRequests.put(requestId, request);
+            // An index hit completes synchronously, before the request was registered
+            if (finished.get()) {
+                activeRequests.remove(requestId, request);
+            }
+        }
+        
+        @Override
+        public void onRendered(@NonNull LatexImageRenderer.Result result) {
+            results[index] = toMap(result);
+            finish();
+        }
+        
+        @Override
+        public void onError(@NonNull String code, @NonNull String message) {
+            WritableMap error = errorMap(message);
+            if (LatexImageRenderer.ERROR_CANCELLED.equals(code)) {
+                error.putBoolean("cancelled", true);
+            }
+            results[index] = error;
+            finish();
+        }
+        
+        private void finish() {
+            finished.set(true);
+            if (requestId != NO_REQUEST_ID) {
+                activeRequests.remove(requestId);
+            }
+            if (remaining.decrementAndGet() == 0) {
+                promise.resolve(toArray(results));
+            }
+        }
+    }
+    
+    @NonNull
+    private static LatexImageRenderer.Options parseOptions(@Nullable ReadableMap options) {
+        float fontSize = options != null && options.hasKey("fontSize") ? (float) options.getDouble("fontSize") : 20f;
+        float maxWidth = options != null && options.hasKey("maxWidth") ? (float) options.getDouble("maxWidth") : 0f;
+        String format = options != null && options.hasKey("format") ? options.getString("format") : null;
+        int color = Color.BLACK;
+        if (options != null && options.hasKey("textColor")) {
+            try {
+                color = Color.parseColor(options.getString("textColor"));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                color = Color.BLACK;
+            }
+        }
+        return new LatexImageRenderer.Options(fontSize, color, maxWidth, format);
+    }
+    
+    private static WritableMap toMap(LatexImageRenderer.Result result) {
+        WritableMap map = Arguments.createMap();
+        map.putString("uri", result.uri);
+        map.putDouble("width", result.width);
+        map.putDouble("height", result.height);
+        return map;
+    }
+    
+    private static WritableMap errorMap(String message) {
+        WritableMap map = Arguments.createMap();
+        map.putString("error", message);
+        return map;
+    }
+    
+    private static WritableArray toArray(WritableMap[] results) {
+        WritableArray array = Arguments.createArray();
+        for (WritableMap result : results) {
+            array.pushMap(result);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,284 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LatexBitmapCache - Process-wide cache of rasterized equations.
+ *
+ * Used by NativeLatexView in renderMode="bitmap", so static equations are
+ * rasterized once and then drawn as a bitmap blit:
+ * - Keyed by (latex, fontSize, density); single-color equations are rasterized
+ *   once in black and tinted at draw time, so recoloring never re-rasterizes
+ * - Equations with their own colors (\color, \textcolor) are keyed by color too
+ * - Byte-budgeted LRU eviction
+ * - Entries are reference counted by the views drawing them; an evicted bitmap
+ *   goes back to {@link LatexBitmapPool} only once no view still draws it
+ * - Misses are served from {@link LatexDiskCache} when possible, loaded on the
+ *   render scheduler rather than the main thread, and new rasters are persisted there
+ *
+ * Rasterization must happen on the main thread because it draws the shared
+ * display list, which is only ever drawn there.
+ */
+public final class LatexBitmapCache {
+    
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+    
+    private static final LatexBitmapCache INSTANCE = new LatexBitmapCache();
+    
+    /**
+     * A cached raster. Views hold an entry while they draw its bitmap and hand
+     * it back through {@link #release(Entry)}.
+     */
+    public static final class Entry {
+        private final String key;
+        private final Bitmap bitmap;
+        private final boolean tintable;
+        private int refCount = 0;
+        private boolean evicted = false;
+        
+        Entry(String key, Bitmap bitmap, boolean tintable) {
+            this.key = key;
+            this.bitmap = bitmap;
+            this.tintable = tintable;
+        }
+        
+        @NonNull
+        public String getKey() {
+            return key;
+        }
+        
+        @NonNull
+        public Bitmap getBitmap() {
+            return bitmap;
+        }
+        
+        /**
+         * True if the bitmap is a black coverage mask that must be drawn with a
+         * SRC_IN color filter in the text color.
+         */
+        public boolean isTintable() {
+            return tintable;
+        }
+    }
+    
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private final LatexBitmapPool pool = new LatexBitmapPool();
+    private final Canvas rasterCanvas = new Canvas();
+    
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long currentBytes = 0;
+    
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long rasterCount = 0;
+    private long diskHitCount = 0;
+    private long evictionCount = 0;
+    
+    private LatexBitmapCache() {
+    }
+    
+    @NonNull
+    public static LatexBitmapCache getInstance() {
+        return INSTANCE;
+    }
+    
+    @NonNull
+    static String keyFor(@NonNull String normalizedLatex, float fontSize, float density, int rasterColor) {
+        return LatexTypesetCache.keyFor(normalizedLatex, fontSize, density) + "|" + rasterColor;
+    }
+    
+    /** Whether the equation draws in the text color only, so its raster can be tinted. */
+    static boolean isTintable(@NonNull String normalizedLatex) {
+        return !normalizedLatex.contains("\\color") && !normalizedLatex.contains("\\textcolor");
+    }
+    
+    private static int rasterColor(@NonNull String normalizedLatex, int color) {
+        return isTintable(normalizedLatex) ? Color.BLACK : color;
+    }
+    
+    /**
+     * Returns an acquired raster from memory without typesetting, or null if it is
+     * not in memory. Never touches the disk; see {@link #loadFromDisk}.
+     * Must be called on the main thread.
+     */
+    @Nullable
+    public synchronized Entry obtainCached(@NonNull String latex, float fontSize, float density, int color) {
+        String normalized = LatexParseCache.normalize(latex);
+        String key = keyFor(normalized, fontSize, density, rasterColor(normalized, color));
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hitCount++;
+            entry.refCount++;
+        }
+        return entry;
+    }
+    
+    /**
+     * Loads a raster persisted by {@link LatexDiskCache} into memory, unacquired, so
+     * the next {@link #obtainCached} hits. Returns false if there is none on disk.
+     * Reads the file, so it must not be called on the main thread.
+     */
+    @WorkerThread
+    public boolean loadFromDisk(@NonNull Context context, @NonNull String latex, float fontSize, float density,
+                                int color) {
+        String normalized = LatexParseCache.normalize(latex);
+        int rasterColor = rasterColor(normalized, color);
+        String key = keyFor(normalized, fontSize, density, rasterColor);
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                return true;
+            }
+        }
+        // Outside the lock, so main thread lookups never wait on the disk
+        Bitmap bitmap = LatexDiskCache.getInstance(context).readRaster(
+            normalized, fontSize, density, rasterColor, pool);
+        if (bitmap == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                pool.put(bitmap);
+                return true;
+            }
+            diskHitCount++;
+            release(insert(key, bitmap, isTintable(normalized)));
+        }
+        return true;
+    }
+    
+    /**
+     * Returns an acquired raster of the typeset equation in the given color,
+     * rasterizing it on a miss. Returns null if the equation cannot be rasterized
+     * within the budget; callers then draw the vector display list instead.
+     * Must be called on the main thread.
+     */
+    @Nullable
+    public synchronized Entry obtain(@NonNull Context context, @NonNull TypesetLatex typeset, int color) {
+        String normalized = typeset.getParsed().getLatex();
+        int rasterColor = rasterColor(normalized, color);
+        String key = keyFor(normalized, typeset.getFontSize(), typeset.getDensity(), rasterColor);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            hitCount++;
+            entry.refCount++;
+            return entry;
+        }
+        missCount++;
+        
+        int width = typeset.getPixelWidth();
+        int height = typeset.getPixelHeight();
+        long bytes = (long) width * height * 4;
+        if (typeset.hasError() || width <= 0 || height <= 0 || bytes > maxBytes / 4) {
+            return null;
+        }
+        
+        Bitmap bitmap = pool.get(width, height);
+        rasterCanvas.setBitmap(bitmap);
+        typeset.draw(rasterCanvas, 0, 0, rasterColor);
+        rasterCanvas.setBitmap(null);
+        rasterCount++;
+        LatexDiskCache.getInstance(context).writeRasterAsync(
+            normalized, typeset.getFontSize(), typeset.getDensity(), rasterColor, typeset, bitmap);
+        
+        return insert(key, bitmap, isTintable(normalized));
+    }
+    
+    @VisibleForTesting
+    synchronized Entry insert(@NonNull String key, @NonNull Bitmap bitmap, boolean tintable) {
+        Entry entry = new Entry(key, bitmap, tintable);
+        entry.refCount = 1;
+        entries.put(key, entry);
+        currentBytes += bitmap.getAllocationByteCount();
+        trimToSize(maxBytes);
+        return entry;
+    }
+    
+    /** Returns an entry obtained from {@link #obtain}. */
+    public synchronized void release(@Nullable Entry entry) {
+        if (entry == null) {
+            return;
+        }
+        entry.refCount--;
+        if (entry.refCount <= 0 && entry.evicted) {
+            pool.put(entry.bitmap);
+        }
+    }
+    
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        trimToSize(this.maxBytes);
+    }
+    
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long sizeBytes() {
+        return currentBytes;
+    }
+    
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+    
+    /** Number of rasterizations performed; stays flat across a theme change. */
+    public synchronized long getRasterCount() {
+        return rasterCount;
+    }
+    
+    public synchronized long getDiskHitCount() {
+        return diskHitCount;
+    }
+    
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+    
+    @NonNull
+    public LatexBitmapPool getPool() {
+        return pool;
+    }
+    
+    /**
+     * Evicts least recently used rasters until the cache holds at most targetBytes.
+     * Rasters still drawn by a view are handed to the pool once released.
+     * The budget itself is unchanged.
+     */
+    public synchronized void trimToSize(long targetBytes) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (currentBytes > targetBytes && iterator.hasNext()) {
+            Entry evicted = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= evicted.bitmap.getAllocationByteCount();
+            evictionCount++;
+            evicted.evicted = true;
+            if (evicted.refCount <= 0) {
+                pool.put(evicted.bitmap);
+            }
+        }
+    }
+}
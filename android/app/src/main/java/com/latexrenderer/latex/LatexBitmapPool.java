@@ -0,0 +1,108 @@
+package com.latexrenderer.latex;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * LatexBitmapPool - Byte-bounded pool of reusable ARGB_8888 bitmaps.
+ *
+ * Bitmaps evicted from {@link LatexBitmapCache} are parked here and reconfigured
+ * for the next raster of equal or smaller size, so scrolling through a long list
+ * does not churn large bitmap allocations.
+ */
+public final class LatexBitmapPool {
+    
+    public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    
+    private final ArrayList<Bitmap> bitmaps = new ArrayList<>();
+    
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long currentBytes = 0;
+    
+    private long reuseCount = 0;
+    private long allocationCount = 0;
+    
+    /**
+     * Returns a cleared bitmap of exactly the given size, reusing the smallest
+     * pooled bitmap large enough to hold it when possible.
+     */
+    @NonNull
+    public synchronized Bitmap get(int width, int height) {
+        long needed = (long) width * height * 4;
+        int bestIndex = -1;
+        long bestBytes = Long.MAX_VALUE;
+        for (int i = 0; i < bitmaps.size(); i++) {
+            long bytes = bitmaps.get(i).getAllocationByteCount();
+            if (bytes >= needed && bytes < bestBytes) {
+                bestIndex = i;
+                bestBytes = bytes;
+            }
+        }
+        
+        if (bestIndex >= 0) {
+            Bitmap bitmap = bitmaps.remove(bestIndex);
+            currentBytes -= bestBytes;
+            bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+            bitmap.eraseColor(Color.TRANSPARENT);
+            reuseCount++;
+            return bitmap;
+        }
+        
+        allocationCount++;
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+    
+    /** Offers a bitmap that is no longer drawn anywhere for reuse. */
+    public synchronized void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        long bytes = bitmap.getAllocationByteCount();
+        if (!bitmap.isMutable() || bytes > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        bitmaps.add(bitmap);
+        currentBytes += bytes;
+        trimToSize(maxBytes);
+    }
+    
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        trimToSize(this.maxBytes);
+    }
+    
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+    
+    public synchronized long sizeBytes() {
+        return currentBytes;
+    }
+    
+    public synchronized long getReuseCount() {
+        return reuseCount;
+    }
+    
+    public synchronized long getAllocationCount() {
+        return allocationCount;
+    }
+    
+    /**
+     * Recycles the oldest pooled bitmaps until the pool holds at most targetBytes.
+     * The budget itself is unchanged.
+     */
+    public synchronized void trimToSize(long targetBytes) {
+        // Oldest bitmaps go first
+        while (currentBytes > targetBytes && !bitmaps.isEmpty()) {
+            Bitmap bitmap = bitmaps.remove(0);
+            currentBytes -= bitmap.getAllocationByteCount();
+            bitmap.recycle();
+        }
+    }
+}
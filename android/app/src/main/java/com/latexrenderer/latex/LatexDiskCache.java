@@ -0,0 +1,361 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * LatexDiskCache - Persistent render cache under the app cache directory.
+ *
+ * Survives app restarts so a warm launch can size and draw the first screen
+ * without typesetting:
+ * - Layout entries hold typeset metrics (width, ascent, descent)
+ * - Raster entries additionally hold raw ARGB_8888 pixels for bitmap mode
+ * - Keys are a SHA-256 content hash of (normalized latex, fontSize, density,
+ *   library version), plus color for rasters
+ * - Reads are memory mapped and never decode; pixels are copied straight into
+ *   a pooled bitmap
+ * - Writes go to a temp file that is synced and then renamed, so a crash never
+ *   leaves a torn entry behind
+ * - Total size is bounded, trimming least recently used entries on a background thread
+ * - Read hits only reorder the in-memory LRU index; file timestamps, which order
+ *   entries on the next launch, are rewritten at most once a day per entry
+ *
+ * The AndroidMath display list itself is a graph of Kotlin objects with no
+ * serialization support, so it is not persisted; vector mode still typesets
+ * on first use, while measurement and bitmap mode are served from disk.
+ */
+public final class LatexDiskCache {
+    
+    private static final String TAG = "LatexDiskCache";
+    
+    /** Bump whenever AndroidMath or the rendering code changes output. */
+    public static final String LIBRARY_VERSION = "androidmath-1.1.0/1";
+    
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+    
+    private static final String DIRECTORY_NAME = "latex-render";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x4C545852; // "LTXR"
+    private static final int FORMAT_VERSION = 1;
+    // magic, version, payload length, width, ascent, descent, raster width, raster height
+    private static final int HEADER_BYTES = 8 * 4;
+    // Read hits refresh an entry's recency at most this often
+    private static final long TOUCH_INTERVAL_MS = 60_000;
+    // Recency is persisted to the file timestamp only when it is older than this
+    private static final long PERSIST_TOUCH_INTERVAL_MS = 24L * 60 * 60 * 1000;
+    
+    private static volatile LatexDiskCache instance;
+    
+    /**
+     * Typeset metrics stored in a layout entry, in pixels.
+     */
+    public static final class Metrics {
+        public final float width;
+        public final float ascent;
+        public final float descent;
+        
+        Metrics(float width, float ascent, float descent) {
+            this.width = width;
+            this.ascent = ascent;
+            this.descent = descent;
+        }
+        
+        public int getPixelWidth() {
+            return (int) Math.ceil(width);
+        }
+        
+        public int getPixelHeight() {
+            return (int) Math.ceil(ascent + descent);
+        }
+    }
+    
+    private final File directory;
+    private final ExecutorService diskExecutor = Executors.newSingleThreadExecutor(
+        runnable -> new Thread(runnable, "latex-disk-cache"));
+    
+    // Only touched on the disk executor thread
+    private LinkedHashMap<String, Long> index;
+    private long currentBytes = 0;
+    
+    private volatile long maxBytes = DEFAULT_MAX_BYTES;
+    
+    // Entry name to uptime of its last recency refresh
+    private final ConcurrentHashMap<String, Long> lastTouched = new ConcurrentHashMap<>();
+    
+    private LatexDiskCache(@NonNull Context context) {
+        directory = new File(context.getApplicationContext().getCacheDir(), DIRECTORY_NAME);
+    }
+    
+    @NonNull
+    public static LatexDiskCache getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (LatexDiskCache.class) {
+                if (instance == null) {
+                    instance = new LatexDiskCache(context);
+                }
+            }
+        }
+        return instance;
+    }
+    
+    @Nullable
+    public Metrics readLayout(@NonNull String normalizedLatex, float fontSize, float density) {
+        File file = new File(directory, layoutName(normalizedLatex, fontSize, density));
+        ByteBuffer buffer = map(file);
+        if (buffer == null) {
+            return null;
+        }
+        touch(file);
+        return new Metrics(buffer.getFloat(12), buffer.getFloat(16), buffer.getFloat(20));
+    }
+    
+    public void writeLayoutAsync(@NonNull String normalizedLatex, float fontSize, float density,
+                                 float width, float ascent, float descent) {
+        final String name = layoutName(normalizedLatex, fontSize, density);
+        diskExecutor.execute(() -> write(name, width, ascent, descent, 0, 0, null));
+    }
+    
+    /**
+     * Reads a raster into a bitmap from the pool, or returns null on a miss.
+     */
+    @Nullable
+    public Bitmap readRaster(@NonNull String normalizedLatex, float fontSize, float density, int color,
+                             @NonNull LatexBitmapPool pool) {
+        File file = new File(directory, rasterName(normalizedLatex, fontSize, density, color));
+        ByteBuffer buffer = map(file);
+        if (buffer == null) {
+            return null;
+        }
+        int width = buffer.getInt(24);
+        int height = buffer.getInt(28);
+        if (width <= 0 || height <= 0 || buffer.limit() - HEADER_BYTES != width * height * 4) {
+            return null;
+        }
+        Bitmap bitmap = pool.get(width, height);
+        buffer.position(HEADER_BYTES);
+        bitmap.copyPixelsFromBuffer(buffer);
+        touch(file);
+        return bitmap;
+    }
+    
+    /**
+     * Persists a raster. The pixels are copied on the calling thread because the
+     * bitmap may be reused by the pool before the write runs.
+     */
+    public void writeRasterAsync(@NonNull String normalizedLatex, float fontSize, float density, int color,
+                                 @NonNull TypesetLatex typeset, @NonNull Bitmap bitmap) {
+        final String name = rasterName(normalizedLatex, fontSize, density, color);
+        final ByteBuffer pixels = ByteBuffer.allocate(bitmap.getByteCount());
+        bitmap.copyPixelsToBuffer(pixels);
+        pixels.flip();
+        final int width = bitmap.getWidth();
+        final int height = bitmap.getHeight();
+        diskExecutor.execute(() -> write(name, typeset.getWidth(), typeset.getAscent(), typeset.getDescent(),
+            width, height, pixels));
+    }
+    
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        diskExecutor.execute(() -> {
+            ensureIndex();
+            trimToSize(this.maxBytes);
+        });
+    }
+    
+    public void clear() {
+        diskExecutor.execute(() -> {
+            ensureIndex();
+            trimToSize(0);
+        });
+    }
+    
+    @NonNull
+    private static String layoutName(String normalizedLatex, float fontSize, float density) {
+        return "l" + hash(LIBRARY_VERSION + "|" + fontSize + "|" + density + "|" + normalizedLatex);
+    }
+    
+    @NonNull
+    private static String rasterName(String normalizedLatex, float fontSize, float density, int color) {
+        return "r" + hash(LIBRARY_VERSION + "|" + fontSize + "|" + density + "|" + color + "|" + normalizedLatex);
+    }
+    
+    /** Lowercase hex SHA-256 of the key, used for content addressed file names. */
+    @NonNull
+    static String hash(@NonNull String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                builder.append(Character.forDigit((b >> 4) & 0xF, 16));
+                builder.append(Character.forDigit(b & 0xF, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is guaranteed on Android
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /** Maps a complete, valid entry file, or returns null. */
+    @Nullable
+    private static ByteBuffer map(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                return null;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION
+                    || buffer.getInt(8) != size - HEADER_BYTES) {
+                Log.w(TAG, "Discarding invalid entry " + file.getName());
+                return null;
+            }
+            return buffer;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read " + file.getName(), e);
+            return null;
+        }
+    }
+    
+    /**
+     * Marks an entry as recently used. Called on every read hit, including each
+     * Yoga measure, so it is throttled and avoids writing file metadata.
+     */
+    private void touch(File file) {
+        String name = file.getName();
+        long now = SystemClock.uptimeMillis();
+        Long last = lastTouched.get(name);
+        if (last != null && now - last < TOUCH_INTERVAL_MS) {
+            return;
+        }
+        lastTouched.put(name, now);
+        diskExecutor.execute(() -> {
+            if (index != null) {
+                Long size = index.remove(name);
+                if (size != null) {
+                    index.put(name, size);
+                }
+            }
+            long wallNow = System.currentTimeMillis();
+            if (wallNow - file.lastModified() > PERSIST_TOUCH_INTERVAL_MS) {
+                file.setLastModified(wallNow);
+            }
+        });
+    }
+    
+    // Runs on the disk executor
+    private void write(String name, float width, float ascent, float descent,
+                       int rasterWidth, int rasterHeight, @Nullable ByteBuffer pixels) {
+        ensureIndex();
+        if (index.containsKey(name)) {
+            return;
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create " + directory);
+            return;
+        }
+        
+        int payload = pixels != null ? pixels.remaining() : 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(payload)
+            .putFloat(width).putFloat(ascent).putFloat(descent)
+            .putInt(rasterWidth).putInt(rasterHeight);
+        header.flip();
+        
+        File temp = new File(directory, name + TEMP_SUFFIX);
+        File target = new File(directory, name);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            FileChannel channel = out.getChannel();
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (pixels != null && pixels.hasRemaining()) {
+                channel.write(pixels);
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write " + name, e);
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(target)) {
+            Log.w(TAG, "Failed to commit " + name);
+            temp.delete();
+            return;
+        }
+        
+        long size = target.length();
+        index.put(name, size);
+        currentBytes += size;
+        trimToSize(maxBytes);
+    }
+    
+    // Runs on the disk executor
+    private void ensureIndex() {
+        if (index != null) {
+            return;
+        }
+        index = new LinkedHashMap<>(256, 0.75f, false);
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        ArrayList<File> entries = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                // Left behind by a crash mid-write
+                file.delete();
+            } else {
+                entries.add(file);
+            }
+        }
+        File[] sorted = entries.toArray(new File[0]);
+        Arrays.sort(sorted, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : sorted) {
+            long size = file.length();
+            index.put(file.getName(), size);
+            currentBytes += size;
+        }
+    }
+    
+    // Runs on the disk executor
+    private void trimToSize(long targetBytes) {
+        Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+        while (currentBytes > targetBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            currentBytes -= entry.getValue();
+            lastTouched.remove(entry.getKey());
+            new File(directory, entry.getKey()).delete();
+        }
+    }
+}
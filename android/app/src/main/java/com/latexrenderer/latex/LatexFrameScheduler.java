@@ -0,0 +1,146 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.hardware.display.DisplayManager;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.Display;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+
+/**
+ * LatexFrameScheduler - Time-sliced main thread work, driven by Choreographer.
+ *
+ * A FlatList batch mounts many views in the same frame, and each of them may have
+ * a display list to install or a raster to draw. Instead of running all of that
+ * in one frame, views post it here:
+ * - Tasks run in order from a frame callback, until the per-frame budget is spent
+ * - Whatever does not fit spills into the next frame, while views show their
+ *   correctly sized placeholder (empty frame, or the vector display list)
+ * - At least one task runs per frame, so work always makes progress
+ * - Posted tasks can be cancelled, e.g. when a view is recycled or dropped
+ * - The budget is a fixed share of the frame, derived from the display refresh
+ *   rate by {@link #configureForDisplay} (6 ms at 60 Hz, 3 ms at 120 Hz)
+ *
+ * Main thread only, apart from configuring the budget.
+ */
+public final class LatexFrameScheduler implements Choreographer.FrameCallback {
+    
+    // Leaves room for RN mounting, layout and draw within a 60 Hz frame
+    public static final float DEFAULT_FRAME_BUDGET_MS = 6f;
+    // The same share of the frame at any refresh rate
+    private static final float FRAME_BUDGET_FRACTION = DEFAULT_FRAME_BUDGET_MS / (1000f / 60f);
+    
+    private static final LatexFrameScheduler INSTANCE = new LatexFrameScheduler();
+    
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private volatile long frameBudgetNanos = (long) (DEFAULT_FRAME_BUDGET_MS * 1_000_000);
+    private boolean frameCallbackPosted = false;
+    
+    private long frameCount = 0;
+    private long taskCount = 0;
+    private long spilledFrameCount = 0;
+    
+    private LatexFrameScheduler() {
+    }
+    
+    @NonNull
+    public static LatexFrameScheduler getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Sizes the budget for the default display's refresh rate, so 90 and 120 Hz
+     * panels keep the same headroom as 60 Hz ones. Safe to call from any thread.
+     */
+    public void configureForDisplay(@NonNull Context context) {
+        DisplayManager displayManager = (DisplayManager) context.getSystemService(Context.DISPLAY_SERVICE);
+        Display display = displayManager != null ? displayManager.getDisplay(Display.DEFAULT_DISPLAY) : null;
+        float refreshRate = display != null ? display.getRefreshRate() : 0f;
+        if (refreshRate >= 1f) {
+            setFrameBudgetMillis(FRAME_BUDGET_FRACTION * 1000f / refreshRate);
+        }
+    }
+    
+    /** Sets how much of each frame may be spent on posted tasks. Safe to call from any thread. */
+    public void setFrameBudgetMillis(float budgetMillis) {
+        frameBudgetNanos = (long) (Math.max(0.5f, budgetMillis) * 1_000_000);
+    }
+    
+    public float getFrameBudgetMillis() {
+        return frameBudgetNanos / 1_000_000f;
+    }
+    
+    /** Queues a task to run within the budget of an upcoming frame. */
+    @MainThread
+    public void post(@NonNull Runnable task) {
+        assertMainThread();
+        tasks.addLast(task);
+        if (!frameCallbackPosted) {
+            frameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+    
+    /** Removes a task that has not run yet. */
+    @MainThread
+    public void cancel(Runnable task) {
+        if (task != null) {
+            tasks.remove(task);
+        }
+    }
+    
+    @MainThread
+    public int getPendingCount() {
+        return tasks.size();
+    }
+    
+    @MainThread
+    public long getFrameCount() {
+        return frameCount;
+    }
+    
+    @MainThread
+    public long getTaskCount() {
+        return taskCount;
+    }
+    
+    /** Frames that ran out of budget and left tasks for the next frame. */
+    @MainThread
+    public long getSpilledFrameCount() {
+        return spilledFrameCount;
+    }
+    
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameCallbackPosted = false;
+        frameCount++;
+        long deadline = System.nanoTime() + frameBudgetNanos;
+        int ran = 0;
+        Runnable task;
+        while ((task = tasks.pollFirst()) != null) {
+            task.run();
+            ran++;
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+        taskCount += ran;
+        
+        if (!tasks.isEmpty()) {
+            spilledFrameCount++;
+            LatexTrace.event(LatexTrace.FRAME_BUDGET_SPENT, 0, ran, tasks.size());
+            frameCallbackPosted = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+    
+    private static void assertMainThread() {
+        if (Looper.myLooper() != Looper.getMainLooper()) {
+            throw new IllegalStateException("LatexFrameScheduler must be used from the main thread");
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LatexImageRenderer - Renders equations to PNG/WebP files for React Native Image.
+ *
+ * Backs the LaTeXRenderer module used by LaTeXView:
+ * - Rendering runs on a fixed background pool
+ * - Files are content addressed by a hash of (latex, fontSize, color, maxWidth,
+ *   density, format, library version), written atomically under cacheDir/latex-images
+ * - An in-memory index answers repeat requests without touching the pool,
+ *   and concurrent requests for the same key share one render
+ * - Requests are cancellable: queued renders nobody waits for are removed,
+ *   and running ones stop at the next phase boundary
+ * - The directory is bounded, trimming least recently written files; files still
+ *   being written, and images returned to JS in the last few minutes (which an
+ *   Image may still be showing), are never trimmed
+ *
+ * Results carry a file:// URI plus the intrinsic size in dp, so Image can lay out
+ * immediately and decode through its own cache.
+ */
+public final class LatexImageRenderer {
+    
+    private static final String TAG = "LatexImageRenderer";
+    
+    private static final String DIRECTORY_NAME = "latex-images";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int THREAD_COUNT = 2;
+    private static final long MAX_DIRECTORY_BYTES = 16L * 1024 * 1024;
+    private static final int WRITES_PER_TRIM = 32;
+    private static final int PNG_QUALITY = 100;
+    // Images returned to JS within this window are kept by trimDirectory()
+    private static final long RECENTLY_RETURNED_MS = 5 * 60 * 1000;
+    
+    public static final String FORMAT_PNG = "png";
+    public static final String FORMAT_WEBP = "webp";
+    
+    public static final String ERROR_CANCELLED = "E_LATEX_CANCELLED";
+    
+    private static volatile LatexImageRenderer instance;
+    
+    /** Rendering options; maxWidth is in dp, 0 meaning unbounded. */
+    public static final class Options {
+        final float fontSize;
+        final int color;
+        final float maxWidth;
+        final String format;
+        
+        public Options(float fontSize, int color, float maxWidth, @Nullable String format) {
+            this.fontSize = fontSize;
+            this.color = color;
+            this.maxWidth = Math.max(0, maxWidth);
+            this.format = FORMAT_WEBP.equals(format) ? FORMAT_WEBP : FORMAT_PNG;
+        }
+    }
+    
+    /** A rendered image: file URI and intrinsic size in dp. */
+    public static final class Result {
+        public final String uri;
+        public final float width;
+        public final float height;
+        
+        Result(String uri, float width, float height) {
+            this.uri = uri;
+            this.width = width;
+            this.height = height;
+        }
+    }
+    
+    /** Receives the outcome of a render, on a pool thread or the calling thread. */
+    public interface Callback {
+        void onRendered(@NonNull Result result);
+        
+        void onError(@NonNull String code, @NonNull String message);
+    }
+    
+    private static final class Outcome {
+        @Nullable
+        final Result result;
+        final String errorCode;
+        final String errorMessage;
+        
+        Outcome(@Nullable Result result, String errorCode, String errorMessage) {
+            this.result = result;
+            this.errorCode = errorCode;
+            this.errorMessage = errorMessage;
+        }
+    }
+    
+    /**
+     * A caller's interest in a render. Cancelling it detaches the callback; the
+     * shared render itself is abandoned once no request is waiting for it.
+     */
+    public final class Request {
+        
+        @Nullable
+        private final Job job;
+        private final Callback callback;
+        
+        Request(@Nullable Job job, Callback callback) {
+            this.job = job;
+            this.callback = callback;
+        }
+        
+        public void cancel() {
+            if (job != null) {
+                LatexImageRenderer.this.cancel(this);
+            }
+        }
+    }
+    
+    private final class Job implements Runnable {
+        
+        final String key;
+        final String latex;
+        final Options options;
+        // Guarded by inflight
+        final List<Request> waiting = new ArrayList<>(1);
+        
+        volatile boolean cancelled = false;
+        
+        Job(String key, String latex, Options options) {
+            this.key = key;
+            this.latex = latex;
+            this.options = options;
+        }
+        
+        @Override
+        public void run() {
+            if (cancelled) {
+                return;
+            }
+            Outcome outcome = renderBlocking(this);
+            if (outcome != null) {
+                deliver(this, outcome);
+            }
+        }
+    }
+    
+    private final Context context;
+    private final File directory;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Result> index = new ConcurrentHashMap<>();
+    private final Map<String, Job> inflight = new HashMap<>();
+    private final AtomicInteger writesSinceTrim = new AtomicInteger();
+    // Key to uptime of when its image was last returned
+    private final Map<String, Long> lastReturned = new ConcurrentHashMap<>();
+    
+    private LatexImageRenderer(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+        this.directory = new File(this.context.getCacheDir(), DIRECTORY_NAME);
+        AtomicInteger count = new AtomicInteger(1);
+        this.executor = new ThreadPoolExecutor(
+            THREAD_COUNT,
+            THREAD_COUNT,
+            0,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(),
+            runnable -> new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "latex-image-" + count.getAndIncrement()));
+    }
+    
+    @NonNull
+    public static LatexImageRenderer getInstance(@NonNull Context context) {
+        if (instance == null) {
+            synchronized (LatexImageRenderer.class) {
+                if (instance == null) {
+                    instance = new LatexImageRenderer(context);
+                }
+            }
+        }
+        return instance;
+    }
+    
+    /**
+     * Renders the equation, or answers from the index if it was rendered before.
+     * The returned request can be cancelled while the render is queued or running.
+     */
+    @NonNull
+    public Request render(@NonNull String latex, @NonNull Options options, @NonNull Callback callback) {
+        final String normalized = LatexParseCache.normalize(latex);
+        final String key = keyFor(normalized, options);
+        
+        Result cached = index.get(key);
+        if (cached != null) {
+            lastReturned.put(key, SystemClock.uptimeMillis());
+            callback.onRendered(cached);
+            return new Request(null, callback);
+        }
+        
+        Job job;
+        Request request;
+        synchronized (inflight) {
+            job = inflight.get(key);
+            if (job != null) {
+                request = new Request(job, callback);
+                job.waiting.add(request);
+                return request;
+            }
+            job = new Job(key, normalized, options);
+            request = new Request(job, callback);
+            job.waiting.add(request);
+            inflight.put(key, job);
+        }
+        executor.execute(job);
+        return request;
+    }
+    
+    private void cancel(Request request) {
+        Job job = request.job;
+        boolean abandoned = false;
+        synchronized (inflight) {
+            if (!job.waiting.remove(request)) {
+                // Already delivered or cancelled
+                return;
+            }
+            if (job.waiting.isEmpty()) {
+                job.cancelled = true;
+                inflight.remove(job.key);
+                abandoned = true;
+            }
+        }
+        if (abandoned && executor.remove(job)) {
+            LatexTrace.event(LatexTrace.IMAGE_RENDER_REMOVED, 0, job.latex.length(), executor.getQueue().size());
+        }
+        request.callback.onError(ERROR_CANCELLED, "Render cancelled");
+    }
+    
+    private void deliver(Job job, Outcome outcome) {
+        List<Request> waiting;
+        synchronized (inflight) {
+            if (outcome.result != null) {
+                index.put(job.key, outcome.result);
+                lastReturned.put(job.key, SystemClock.uptimeMillis());
+            }
+            if (inflight.get(job.key) == job) {
+                inflight.remove(job.key);
+            }
+            waiting = new ArrayList<>(job.waiting);
+            job.waiting.clear();
+        }
+        for (Request request : waiting) {
+            if (outcome.result != null) {
+                request.callback.onRendered(outcome.result);
+            } else {
+                request.callback.onError(outcome.errorCode, outcome.errorMessage);
+            }
+        }
+    }
+    
+    /**
+     * Renders the job's image, checking for cancellation between parse, typeset,
+     * draw and encode. Returns null if the job was cancelled.
+     */
+    @Nullable
+    private Outcome renderBlocking(Job job) {
+        Options options = job.options;
+        float density = context.getResources().getDisplayMetrics().density;
+        File file = new File(directory, job.key + "." + options.format);
+        
+        // Rendered by a previous launch: only the header is decoded
+        if (file.exists()) {
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(file.getPath(), bounds);
+            if (bounds.outWidth > 0 && bounds.outHeight > 0) {
+                return success(file, bounds.outWidth, bounds.outHeight, density);
+            }
+            file.delete();
+        }
+        
+        // Parse first so typesetUnshared below finds it in the parse cache
+        LatexParseCache.getInstance().get(job.latex);
+        if (job.cancelled) {
+            return null;
+        }
+        
+        TypesetLatex typeset = LatexTypesetCache.getInstance().typesetUnshared(context, job.latex, options.fontSize, density);
+        if (job.cancelled) {
+            return null;
+        }
+        if (typeset.hasError()) {
+            String message = typeset.getError() != null ? typeset.getError() : "LaTeX Error";
+            return new Outcome(null, "E_LATEX_PARSE", message);
+        }
+        
+        float scale = 1f;
+        float maxWidthPx = options.maxWidth * density;
+        if (maxWidthPx > 0 && typeset.getWidth() > maxWidthPx) {
+            scale = maxWidthPx / typeset.getWidth();
+        }
+        int width = Math.max(1, (int) Math.ceil(typeset.getWidth() * scale));
+        int height = Math.max(1, (int) Math.ceil((typeset.getAscent() + typeset.getDescent()) * scale));
+        
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        try {
+            Canvas canvas = new Canvas(bitmap);
+            canvas.scale(scale, scale);
+            // The display list is private, but its glyphs come from the shared per-size
+            // font the UI thread and the typesetter also use; draw() holds the font lock
+            typeset.draw(canvas, 0, 0, options.color);
+            if (job.cancelled) {
+                return null;
+            }
+            if (!write(bitmap, file, options.format)) {
+                return new Outcome(null, "E_LATEX_WRITE", "Failed to write rendered image");
+            }
+        } finally {
+            bitmap.recycle();
+        }
+        
+        if (writesSinceTrim.incrementAndGet() >= WRITES_PER_TRIM) {
+            writesSinceTrim.set(0);
+            trimDirectory();
+        }
+        return success(file, width, height, density);
+    }
+    
+    private static Outcome success(File file, int width, int height, float density) {
+        return new Outcome(new Result(fileUri(file), width / density, height / density), null, null);
+    }
+    
+    private static String fileUri(File file) {
+        return "file://" + file.getAbsolutePath();
+    }
+    
+    @SuppressWarnings("deprecation")
+    private boolean write(Bitmap bitmap, File file, String format) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return false;
+        }
+        Bitmap.CompressFormat compressFormat;
+        if (FORMAT_WEBP.equals(format)) {
+            compressFormat = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                ? Bitmap.CompressFormat.WEBP_LOSSLESS
+                : Bitmap.CompressFormat.WEBP;
+        } else {
+            compressFormat = Bitmap.CompressFormat.PNG;
+        }
+        
+        File temp = new File(directory, file.getName() + TEMP_SUFFIX + Thread.currentThread().getId());
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            if (!bitmap.compress(compressFormat, PNG_QUALITY, out)) {
+                temp.delete();
+                return false;
+            }
+            out.getFD().sync();
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write " + file.getName(), e);
+            temp.delete();
+            return false;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return false;
+        }
+        return true;
+    }
+    
+    private void trimDirectory() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= MAX_DIRECTORY_BYTES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        long now = SystemClock.uptimeMillis();
+        for (File file : files) {
+            if (total <= MAX_DIRECTORY_BYTES) {
+                break;
+            }
+            String name = file.getName();
+            // Another worker's write in progress; deleting it would fail its rename
+            if (name.contains(TEMP_SUFFIX)) {
+                continue;
+            }
+            int dot = name.indexOf('.');
+            String key = dot < 0 ? name : name.substring(0, dot);
+            Long returned = lastReturned.get(key);
+            if (returned != null) {
+                if (now - returned < RECENTLY_RETURNED_MS) {
+                    continue;
+                }
+                lastReturned.remove(key);
+            }
+            total -= file.length();
+            index.remove(key);
+            file.delete();
+        }
+    }
+    
+    @NonNull
+    private String keyFor(String normalizedLatex, Options options) {
+        float density = context.getResources().getDisplayMetrics().density;
+        return LatexDiskCache.hash(LatexDiskCache.LIBRARY_VERSION + "|" + options.fontSize + "|" + options.color
+            + "|" + options.maxWidth + "|" + density + "|" + options.format + "|" + normalizedLatex);
+    }
+}
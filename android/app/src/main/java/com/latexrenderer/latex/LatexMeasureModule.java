@@ -0,0 +1,111 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.module.annotations.ReactModule;
+import com.facebook.yoga.YogaMeasureOutput;
+
+/**
+ * LatexMeasureModule - Synchronous TurboModule for measuring equations from JS.
+ *
+ * Returns the same sizes Yoga gets from {@link LatexMeasurer}, without mounting
+ * a view, so lists can compute exact item layouts up front:
+ * - Served from {@link LatexTypesetCache} or {@link LatexDiskCache} when warm
+ * - Typesets on the JS thread on a miss, populating the cache for the views
+ * - Paragraphs are wrapped by the same {@link LatexParagraphLayout} the view uses
+ * - All values are returned in dp
+ */
+@ReactModule(name = LatexMeasureModule.NAME)
+public class LatexMeasureModule extends NativeLatexMeasureSpec {
+    
+    public static final String NAME = "LatexMeasure";
+    
+    public LatexMeasureModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+    
+    @NonNull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public WritableMap measureLatex(String latex, double fontSize) {
+        return measure(getReactApplicationContext(), latex, (float) fontSize);
+    }
+    
+    @Override
+    public WritableArray measureMany(ReadableArray requests) {
+        Context context = getReactApplicationContext();
+        WritableArray results = Arguments.createArray();
+        for (int i = 0; i < requests.size(); i++) {
+            ReadableMap request = requests.getMap(i);
+            String latex = request != null && request.hasKey("latex") ? request.getString("latex") : null;
+            float fontSize = request != null && request.hasKey("fontSize") ? (float) request.getDouble("fontSize") : 20f;
+            results.pushMap(measure(context, latex, fontSize));
+        }
+        return results;
+    }
+    
+    @Override
+    public WritableMap measureParagraph(String text, double fontSize, double mathFontSize,
+                                        double displayMathFontSize, double maxWidth) {
+        Context context = getReactApplicationContext();
+        float density = context.getResources().getDisplayMetrics().density;
+        WritableMap result = Arguments.createMap();
+        if (text == null || text.isEmpty()) {
+            result.putDouble("width", 0);
+            result.putDouble("height", 0);
+            return result;
+        }
+        LatexParagraphLayout layout = LatexParagraphLayout.build(context, LatexTokenizer.tokenize(text),
+            LatexParagraphLayout.createTextPaint(context, (float) fontSize), (float) mathFontSize,
+            (float) displayMathFontSize, (float) maxWidth * density);
+        result.putDouble("width", layout.getPixelWidth() / density);
+        result.putDouble("height", layout.getPixelHeight() / density);
+        return result;
+    }
+    
+    @NonNull
+    private static WritableMap measure(Context context, String latex, float fontSize) {
+        float density = context.getResources().getDisplayMetrics().density;
+        float width = 0;
+        float height = 0;
+        float ascent = 0;
+        float descent = 0;
+        boolean error = false;
+        
+        if (latex != null && !latex.isEmpty()) {
+            LatexDiskCache.Metrics metrics = LatexMeasurer.contentMetrics(context, latex, fontSize, density);
+            if (metrics != null) {
+                width = metrics.getPixelWidth();
+                height = metrics.getPixelHeight();
+                ascent = metrics.ascent;
+                descent = metrics.descent;
+            } else {
+                long size = LatexMeasurer.errorBoxSize(context,
+                    LatexMeasurer.typesetError(context, latex, fontSize, density), Integer.MAX_VALUE / 2);
+                width = YogaMeasureOutput.getWidth(size);
+                height = YogaMeasureOutput.getHeight(size);
+                error = true;
+            }
+        }
+        
+        WritableMap result = Arguments.createMap();
+        result.putDouble("width", width / density);
+        result.putDouble("height", height / density);
+        result.putDouble("ascent", ascent / density);
+        result.putDouble("descent", descent / density);
+        result.putBoolean("error", error);
+        return result;
+    }
+}
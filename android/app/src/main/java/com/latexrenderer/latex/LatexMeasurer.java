@@ -0,0 +1,142 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.TypedValue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.yoga.YogaMeasureMode;
+import com.facebook.yoga.YogaMeasureOutput;
+
+/**
+ * LatexMeasurer - Shared Yoga measurement for LaTeX equations.
+ *
+ * Used by both the Paper shadow node and the Fabric ViewManager.measure() path,
+ * so the two architectures size equations identically. All values are pixels.
+ * On a cold process the metrics persisted by {@link LatexDiskCache} are used
+ * before falling back to typesetting. Error boxes are wrapped with the same
+ * {@link StaticLayout} NativeLatexView draws, via {@link #errorLayout}.
+ */
+final class LatexMeasurer {
+    
+    // The error box drawn by NativeLatexView: 14sp text with 12dp padding
+    private static final float ERROR_TEXT_SP = 14f;
+    private static final int ERROR_PADDING_DP = 12;
+    
+    private LatexMeasurer() {
+    }
+    
+    static long measure(Context context, @Nullable String latex, float fontSize,
+                        float width, YogaMeasureMode widthMode,
+                        float height, YogaMeasureMode heightMode) {
+        if (latex == null || latex.isEmpty()) {
+            return YogaMeasureOutput.make(0, 0);
+        }
+        
+        long start = LatexMetrics.now();
+        float density = context.getResources().getDisplayMetrics().density;
+        LatexDiskCache.Metrics metrics = contentMetrics(context, latex, fontSize, density);
+        
+        float measuredWidth;
+        float measuredHeight;
+        if (metrics == null) {
+            int maxWidth = widthMode == YogaMeasureMode.UNDEFINED ? Integer.MAX_VALUE / 2 : (int) width;
+            long errorSize = errorBoxSize(context, typesetError(context, latex, fontSize, density), maxWidth);
+            measuredWidth = YogaMeasureOutput.getWidth(errorSize);
+            measuredHeight = YogaMeasureOutput.getHeight(errorSize);
+        } else {
+            measuredWidth = metrics.getPixelWidth();
+            measuredHeight = metrics.getPixelHeight();
+        }
+        
+        // Wider equations scroll horizontally inside the available width
+        if (widthMode == YogaMeasureMode.EXACTLY) {
+            measuredWidth = width;
+        } else if (widthMode == YogaMeasureMode.AT_MOST) {
+            measuredWidth = Math.min(measuredWidth, width);
+        }
+        if (heightMode == YogaMeasureMode.EXACTLY) {
+            measuredHeight = height;
+        } else if (heightMode == YogaMeasureMode.AT_MOST) {
+            measuredHeight = Math.min(measuredHeight, height);
+        }
+        
+        LatexMetrics.record(LatexMetrics.Phase.MEASURE, start);
+        return YogaMeasureOutput.make(measuredWidth, measuredHeight);
+    }
+    
+    /**
+     * Returns the typeset metrics in pixels, from memory, disk or a fresh typeset,
+     * or null if the equation fails to parse or typeset.
+     */
+    @Nullable
+    static LatexDiskCache.Metrics contentMetrics(Context context, String latex, float fontSize, float density) {
+        LatexTypesetCache typesetCache = LatexTypesetCache.getInstance();
+        TypesetLatex typeset = typesetCache.peek(latex, fontSize, density);
+        if (typeset == null) {
+            LatexDiskCache.Metrics metrics = LatexDiskCache.getInstance(context).readLayout(
+                LatexParseCache.normalize(latex), fontSize, density);
+            if (metrics != null) {
+                return metrics;
+            }
+            typeset = typesetCache.get(context, latex, fontSize, density);
+        }
+        if (typeset.hasError()) {
+            return null;
+        }
+        return new LatexDiskCache.Metrics(typeset.getWidth(), typeset.getAscent(), typeset.getDescent());
+    }
+    
+    /** The typeset error for an equation that failed; served from the cache after contentMetrics. */
+    @Nullable
+    static String typesetError(Context context, String latex, float fontSize, float density) {
+        return LatexTypesetCache.getInstance().get(context, latex, fontSize, density).getError();
+    }
+    
+    /**
+     * Size of the error box for the given error, wrapped within maxWidth pixels
+     * (padding included), packed as a {@link YogaMeasureOutput}.
+     */
+    static long errorBoxSize(Context context, @Nullable String error, int maxWidth) {
+        int padding = errorPadding(context);
+        StaticLayout layout = errorLayout(errorText(error), newErrorPaint(context), padding, maxWidth);
+        return YogaMeasureOutput.make(layout.getWidth() + 2 * padding, layout.getHeight() + 2 * padding);
+    }
+    
+    /** The message shown in the error box. */
+    @NonNull
+    static String errorText(@Nullable String error) {
+        return error != null && !error.isEmpty() ? "⚠️ Error: " + error : "⚠️ LaTeX Error";
+    }
+    
+    /** Paint for the error box text; callers drawing it set the color. */
+    @NonNull
+    static TextPaint newErrorPaint(Context context) {
+        TextPaint paint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(TypedValue.applyDimension(
+            TypedValue.COMPLEX_UNIT_SP, ERROR_TEXT_SP, context.getResources().getDisplayMetrics()));
+        return paint;
+    }
+    
+    static int errorPadding(Context context) {
+        return Math.round(ERROR_PADDING_DP * context.getResources().getDisplayMetrics().density);
+    }
+    
+    /** Width of the wrapped error text inside a box at most maxWidth pixels wide. */
+    static int errorLayoutWidth(CharSequence text, TextPaint paint, int padding, int maxWidth) {
+        int available = Math.max(0, maxWidth - 2 * padding);
+        int desired = (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+        return Math.min(desired, available);
+    }
+    
+    /** Error text wrapped exactly as NativeLatexView draws it. */
+    @NonNull
+    static StaticLayout errorLayout(CharSequence text, TextPaint paint, int padding, int maxWidth) {
+        int width = errorLayoutWidth(text, paint, padding, maxWidth);
+        return StaticLayout.Builder.obtain(text, 0, text.length(), paint, width).build();
+    }
+}
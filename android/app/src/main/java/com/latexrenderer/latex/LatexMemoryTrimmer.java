@@ -0,0 +1,139 @@
+package com.latexrenderer.latex;
+
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * LatexMemoryTrimmer - Sizes the LaTeX caches for the device and sheds them under
+ * memory pressure.
+ *
+ * Registered once per process from {@link LatexPackage}:
+ * - Budgets are derived from {@link ActivityManager#getMemoryClass()}, and halved
+ *   on low-RAM devices
+ * - onTrimMemory sheds the cheapest-to-rebuild tiers first: rasters and pooled
+ *   bitmaps, then display lists, then parse trees
+ * - Pooled views are dropped whenever the UI is hidden or memory runs low
+ *
+ * Trimming only evicts entries; the budgets stay in place for when memory recovers.
+ */
+public final class LatexMemoryTrimmer implements ComponentCallbacks2 {
+    
+    private static final String TAG = "LatexMemoryTrimmer";
+    
+    private static final long MB = 1024L * 1024;
+    
+    private static LatexMemoryTrimmer instance;
+    
+    @VisibleForTesting
+    LatexMemoryTrimmer() {
+    }
+    
+    /**
+     * Applies memory-class budgets and starts listening for trim callbacks.
+     * Safe to call more than once.
+     */
+    public static synchronized void register(@NonNull Context context) {
+        if (instance != null) {
+            return;
+        }
+        Context appContext = context.getApplicationContext();
+        applyBudgets(appContext);
+        instance = new LatexMemoryTrimmer();
+        appContext.registerComponentCallbacks(instance);
+    }
+    
+    /**
+     * Recomputes the memory cache budgets from the per-app heap limit. The
+     * defaults suit a 256 MB heap; smaller heaps get proportionally less.
+     */
+    public static void applyBudgets(@NonNull Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return;
+        }
+        long heapBytes = activityManager.getMemoryClass() * MB;
+        if (activityManager.isLowRamDevice()) {
+            heapBytes /= 2;
+        }
+        
+        long bitmapBytes = clamp(heapBytes / 16, 4 * MB, LatexBitmapCache.DEFAULT_MAX_BYTES);
+        long bitmapPoolBytes = clamp(heapBytes / 64, MB, LatexBitmapPool.DEFAULT_MAX_BYTES);
+        long typesetBytes = clamp(heapBytes / 64, MB, LatexTypesetCache.DEFAULT_MAX_BYTES);
+        long parseBytes = clamp(heapBytes / 128, 512 * 1024, LatexParseCache.DEFAULT_MAX_BYTES);
+        
+        LatexBitmapCache.getInstance().setMaxBytes(bitmapBytes);
+        LatexBitmapCache.getInstance().getPool().setMaxBytes(bitmapPoolBytes);
+        LatexTypesetCache.getInstance().setMaxBytes(typesetBytes);
+        LatexParseCache.getInstance().setBudget(LatexParseCache.DEFAULT_MAX_ENTRIES, parseBytes);
+        
+        Log.d(TAG, "Budgets for " + (heapBytes / MB) + " MB heap: bitmaps " + (bitmapBytes / 1024)
+            + " KB, display lists " + (typesetBytes / 1024) + " KB, parse trees " + (parseBytes / 1024) + " KB");
+    }
+    
+    @Override
+    @SuppressWarnings("deprecation")
+    public void onTrimMemory(int level) {
+        Log.d(TAG, "onTrimMemory: " + level);
+        LatexBitmapCache bitmaps = LatexBitmapCache.getInstance();
+        LatexTypesetCache typesets = LatexTypesetCache.getInstance();
+        LatexParseCache parses = LatexParseCache.getInstance();
+        
+        if (level >= TRIM_MEMORY_MODERATE) {
+            // Next in line to be killed: keep nothing that can be rebuilt
+            trimAll();
+        } else if (level >= TRIM_MEMORY_BACKGROUND) {
+            trimBitmaps(0);
+            typesets.trimToSize(typesets.getMaxBytes() / 2);
+            LatexViewPool.getInstance().clear();
+        } else if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            // Nothing is on screen, and rasters are cheap to redraw from display lists
+            trimBitmaps(0);
+            LatexViewPool.getInstance().clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimBitmaps(0);
+            typesets.trimToSize(0);
+            parses.trimToSize(parses.sizeBytes() / 2);
+            LatexViewPool.getInstance().clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_LOW) {
+            trimBitmaps(0);
+            typesets.trimToSize(typesets.getMaxBytes() / 2);
+            LatexViewPool.getInstance().clear();
+        } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+            trimBitmaps(bitmaps.getMaxBytes() / 2);
+        }
+    }
+    
+    @Override
+    public void onLowMemory() {
+        Log.d(TAG, "onLowMemory");
+        trimAll();
+    }
+    
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+    
+    private static void trimAll() {
+        trimBitmaps(0);
+        LatexTypesetCache.getInstance().trimToSize(0);
+        LatexParseCache.getInstance().trimToSize(0);
+        LatexViewPool.getInstance().clear();
+    }
+    
+    private static void trimBitmaps(long targetBytes) {
+        LatexBitmapCache bitmaps = LatexBitmapCache.getInstance();
+        bitmaps.trimToSize(targetBytes);
+        // Evicted rasters land in the pool, so trim it afterwards
+        bitmaps.getPool().trimToSize(targetBytes == 0 ? 0 : targetBytes / 4);
+    }
+    
+    private static long clamp(long value, long min, long max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,168 @@
+package com.latexrenderer.latex;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatexMetrics - Low overhead latency histograms for the rendering pipeline.
+ *
+ * One histogram per {@link Phase}, recorded from any thread:
+ * - Fixed log-linear buckets (four per power of two, in microseconds) held in
+ *   primitive atomic arrays, so recording never allocates or boxes
+ * - Callers pass the start time from {@link #now()}, and the duration is taken
+ *   when the phase ends
+ * - Percentiles are computed from the buckets when a snapshot is taken, to
+ *   within a quarter of a power of two
+ *
+ * Cache hit/miss counters live in the caches themselves; {@link LatexMetricsModule}
+ * reports them alongside these histograms.
+ */
+public final class LatexMetrics {
+    
+    public enum Phase {
+        PARSE,
+        TYPESET,
+        MEASURE,
+        DRAW,
+        // From a content prop change being committed to the first draw showing it
+        PROP_TO_PIXEL,
+        // Time a background render waited in the LatexRenderScheduler queue
+        QUEUE_WAIT
+    }
+    
+    private static final int SUB_BUCKETS = 4;
+    // Up to roughly 16 s
+    private static final int BUCKET_COUNT = 96;
+    
+    private static final Histogram[] HISTOGRAMS = new Histogram[Phase.values().length];
+    
+    static {
+        for (int i = 0; i < HISTOGRAMS.length; i++) {
+            HISTOGRAMS[i] = new Histogram();
+        }
+    }
+    
+    /** Summary of one histogram, durations in milliseconds. */
+    public static final class Summary {
+        public final long count;
+        public final double mean;
+        public final double p50;
+        public final double p95;
+        public final double p99;
+        public final double max;
+        
+        Summary(long count, double mean, double p50, double p95, double p99, double max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+        }
+    }
+    
+    private static final class Histogram {
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong totalMicros = new AtomicLong();
+        final AtomicLong maxMicros = new AtomicLong();
+        
+        void record(long micros) {
+            buckets.incrementAndGet(bucketFor(micros));
+            count.incrementAndGet();
+            totalMicros.addAndGet(micros);
+            long max;
+            while (micros > (max = maxMicros.get()) && !maxMicros.compareAndSet(max, micros)) {
+                // Retry until the larger value sticks
+            }
+        }
+        
+        Summary summarize() {
+            long[] counts = new long[BUCKET_COUNT];
+            long total = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = buckets.get(i);
+                total += counts[i];
+            }
+            long n = count.get();
+            double mean = n == 0 ? 0 : totalMicros.get() / 1000.0 / n;
+            return new Summary(total, mean, percentile(counts, total, 0.50), percentile(counts, total, 0.95),
+                percentile(counts, total, 0.99), maxMicros.get() / 1000.0);
+        }
+        
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            totalMicros.set(0);
+            maxMicros.set(0);
+        }
+    }
+    
+    private LatexMetrics() {
+    }
+    
+    /** Start timestamp for {@link #record}. */
+    public static long now() {
+        return SystemClock.elapsedRealtimeNanos();
+    }
+    
+    /** Records the time elapsed since startNanos, taken from {@link #now()}. */
+    public static void record(@NonNull Phase phase, long startNanos) {
+        long micros = Math.max(0, (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000);
+        HISTOGRAMS[phase.ordinal()].record(micros);
+    }
+    
+    @NonNull
+    public static Summary summarize(@NonNull Phase phase) {
+        return HISTOGRAMS[phase.ordinal()].summarize();
+    }
+    
+    public static void reset() {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+    
+    static int bucketFor(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >>> (msb - 2)) & (SUB_BUCKETS - 1));
+        return Math.min(SUB_BUCKETS * (msb - 1) + sub, BUCKET_COUNT - 1);
+    }
+    
+    /** Lower bound of a bucket, in microseconds. */
+    static long bucketLowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int msb = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (msb - 2);
+    }
+    
+    private static double percentile(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                // Report the bucket midpoint
+                long low = bucketLowerBound(i);
+                long high = i + 1 < counts.length ? bucketLowerBound(i + 1) : low;
+                return (low + high) / 2.0 / 1000.0;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,121 @@
+package com.latexrenderer.latex;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.module.annotations.ReactModule;
+
+/**
+ * LatexMetricsModule - Synchronous TurboModule exposing {@link LatexMetrics} to JS.
+ *
+ * Used by QA builds to show rendering latencies on the performance screen:
+ * - Per phase: count, mean, p50, p95, p99 and max, in milliseconds
+ * - Cache counters (parse, typeset, raster) and render scheduler drops and stale
+ *   requests, reported since the last reset
+ * - The render scheduler's current and peak queue depth
+ * - reset() clears the histograms and re-baselines the counters
+ * - dumpTrace() returns the {@link LatexTrace} ring buffer
+ */
+@ReactModule(name = LatexMetricsModule.NAME)
+public class LatexMetricsModule extends NativeLatexMetricsSpec {
+    
+    public static final String NAME = "LatexMetrics";
+    
+    private static final String[] COUNTER_NAMES = {
+        "parseHits",
+        "parseMisses",
+        "typesetHits",
+        "typesetMisses",
+        "typesetCount",
+        "rasterHits",
+        "rasterMisses",
+        "rasterCount",
+        "rasterDiskHits",
+        "renderDropped",
+        "renderStale",
+    };
+    
+    private final long[] baselines = new long[COUNTER_NAMES.length];
+    
+    public LatexMetricsModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+    
+    @NonNull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public WritableMap snapshot() {
+        WritableMap result = Arguments.createMap();
+        result.putMap("parse", toMap(LatexMetrics.summarize(LatexMetrics.Phase.PARSE)));
+        result.putMap("typeset", toMap(LatexMetrics.summarize(LatexMetrics.Phase.TYPESET)));
+        result.putMap("measure", toMap(LatexMetrics.summarize(LatexMetrics.Phase.MEASURE)));
+        result.putMap("draw", toMap(LatexMetrics.summarize(LatexMetrics.Phase.DRAW)));
+        result.putMap("propToPixel", toMap(LatexMetrics.summarize(LatexMetrics.Phase.PROP_TO_PIXEL)));
+        result.putMap("queueWait", toMap(LatexMetrics.summarize(LatexMetrics.Phase.QUEUE_WAIT)));
+        
+        LatexRenderScheduler scheduler = LatexRenderScheduler.getInstance();
+        result.putInt("queueDepth", scheduler.getQueueDepth());
+        result.putInt("maxQueueDepth", scheduler.getMaxQueueDepth());
+        
+        long[] counters = readCounters();
+        WritableMap counterMap = Arguments.createMap();
+        synchronized (baselines) {
+            for (int i = 0; i < COUNTER_NAMES.length; i++) {
+                counterMap.putDouble(COUNTER_NAMES[i], counters[i] - baselines[i]);
+            }
+        }
+        result.putMap("counters", counterMap);
+        return result;
+    }
+    
+    @Override
+    public void reset() {
+        LatexMetrics.reset();
+        long[] counters = readCounters();
+        synchronized (baselines) {
+            System.arraycopy(counters, 0, baselines, 0, baselines.length);
+        }
+    }
+    
+    @Override
+    public String dumpTrace() {
+        return LatexTrace.dump();
+    }
+    
+    private static long[] readCounters() {
+        LatexParseCache parseCache = LatexParseCache.getInstance();
+        LatexTypesetCache typesetCache = LatexTypesetCache.getInstance();
+        LatexBitmapCache bitmapCache = LatexBitmapCache.getInstance();
+        LatexRenderScheduler scheduler = LatexRenderScheduler.getInstance();
+        return new long[] {
+            parseCache.getHitCount(),
+            parseCache.getMissCount(),
+            typesetCache.getHitCount(),
+            typesetCache.getMissCount(),
+            typesetCache.getTypesetCount(),
+            bitmapCache.getHitCount(),
+            bitmapCache.getMissCount(),
+            bitmapCache.getRasterCount(),
+            bitmapCache.getDiskHitCount(),
+            scheduler.getDroppedCount(),
+            scheduler.getStaleCount(),
+        };
+    }
+    
+    private static WritableMap toMap(LatexMetrics.Summary summary) {
+        WritableMap map = Arguments.createMap();
+        map.putDouble("count", summary.count);
+        map.putDouble("mean", summary.mean);
+        map.putDouble("p50", summary.p50);
+        map.putDouble("p95", summary.p95);
+        map.putDouble("p99", summary.p99);
+        map.putDouble("max", summary.max);
+        return map;
+    }
+}
@@ -1,35 +1,84 @@
 package com.latexrenderer.latex;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
-import com.facebook.react.ReactPackage;
+import com.facebook.react.BaseReactPackage;
 import com.facebook.react.bridge.NativeModule;
 import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
 import com.facebook.react.uimanager.ViewManager;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * LatexPackage - React Native package for registering the LaTeX view manager.
+ * LatexPackage - React Native package for registering the LaTeX view manager
+ * and the LaTeX TurboModules.
  * 
  * This package needs to be added to the packages list in MainApplication.
+ * Creating the view managers also registers {@link LatexMemoryTrimmer} and sizes the
+ * {@link LatexFrameScheduler} budget for the display refresh rate.
  */
-public class LatexPackage implements ReactPackage {
+public class LatexPackage extends BaseReactPackage {
+    
+    @Nullable
+    @Override
+    public NativeModule getModule(@NonNull String name, @NonNull ReactApplicationContext reactContext) {
+        if (LatexPrefetcherModule.NAME.equals(name)) {
+            return new LatexPrefetcherModule(reactContext);
+        }
+        if (LatexMeasureModule.NAME.equals(name)) {
+            return new LatexMeasureModule(reactContext);
+        }
+        if (LaTeXRendererModule.NAME.equals(name)) {
+            return new LaTeXRendererModule(reactContext);
+        }
+        if (LatexMetricsModule.NAME.equals(name)) {
+            return new LatexMetricsModule(reactContext);
+        }
+        return null;
+    }
     
     @NonNull
     @Override
-    public List<NativeModule> createNativeModules(@NonNull ReactApplicationContext reactContext) {
-
-        return Collections.emptyList();
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> moduleInfos = new HashMap<>();
+            moduleInfos.put(LatexPrefetcherModule.NAME, turboModuleInfo(
+                LatexPrefetcherModule.NAME, LatexPrefetcherModule.class));
+            moduleInfos.put(LatexMeasureModule.NAME, turboModuleInfo(
+                LatexMeasureModule.NAME, LatexMeasureModule.class));
+            moduleInfos.put(LaTeXRendererModule.NAME, turboModuleInfo(
+                LaTeXRendererModule.NAME, LaTeXRendererModule.class));
+            moduleInfos.put(LatexMetricsModule.NAME, turboModuleInfo(
+                LatexMetricsModule.NAME, LatexMetricsModule.class));
+            return moduleInfos;
+        };
     }
     
     @NonNull
     @Override
     public List<ViewManager> createViewManagers(@NonNull ReactApplicationContext reactContext) {
+        LatexMemoryTrimmer.register(reactContext);
+        LatexFrameScheduler.getInstance().configureForDisplay(reactContext);
         List<ViewManager> viewManagers = new ArrayList<>();
         viewManagers.add(new LatexViewManager());
+        viewManagers.add(new LatexParagraphViewManager());
         return viewManagers;
     }
+    
+    private static ReactModuleInfo turboModuleInfo(String name, Class<?> moduleClass) {
+        return new ReactModuleInfo(
+            name,
+            moduleClass.getName(),
+            false, // canOverrideExistingModule
+            false, // needsEagerInit
+            false, // isCxxModule
+            true   // isTurboModule
+        );
+    }
 }
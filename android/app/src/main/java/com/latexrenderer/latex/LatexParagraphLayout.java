@@ -0,0 +1,379 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.text.TextPaint;
+import android.util.TypedValue;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.yoga.YogaMeasureMode;
+import com.facebook.yoga.YogaMeasureOutput;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * LatexParagraphLayout - Line-wrapped layout of text mixed with typeset math.
+ *
+ * Built from {@link LatexTokenizer} tokens for a given width:
+ * - Text wraps greedily at spaces; newlines force a break
+ * - Inline math is an unbreakable box sharing the text baseline
+ * - Display math sits on its own line
+ * - Equations that fail to typeset are shown as their source in the error color
+ * - {@link #buildCached} never typesets: equations missing from the cache are
+ *   placeholder boxes sized like their source text, listed by {@link #getMissingMath()}
+ *
+ * All font sizes are in sp, like React Native text: math is typeset at the same
+ * scaled pixel size as body text of that size, so the two stay in proportion at
+ * any density and font scale.
+ *
+ * Layouts are immutable and can be built on any thread; math comes from
+ * {@link LatexTypesetCache}. Drawing must happen on the main thread.
+ */
+final class LatexParagraphLayout {
+    
+    private static final int ERROR_TEXT_COLOR = Color.parseColor("#856404");
+    private static final int PLACEHOLDER_ALPHA = 0x1F;
+    
+    private static final class Run {
+        final float x;
+        final float baseline;
+        @Nullable
+        final String text;
+        @Nullable
+        final TypesetLatex math;
+        final boolean error;
+        // Width of a placeholder for an equation not typeset yet, otherwise 0
+        final float placeholderWidth;
+        
+        Run(float x, float baseline, @Nullable String text, @Nullable TypesetLatex math, boolean error,
+            float placeholderWidth) {
+            this.x = x;
+            this.baseline = baseline;
+            this.text = text;
+            this.math = math;
+            this.error = error;
+            this.placeholderWidth = placeholderWidth;
+        }
+    }
+    
+    /** A run placed on the current line whose baseline is not known yet. */
+    private static final class Pending {
+        final float x;
+        @Nullable
+        final String text;
+        @Nullable
+        final TypesetLatex math;
+        final boolean error;
+        final float placeholderWidth;
+        
+        Pending(float x, @Nullable String text, @Nullable TypesetLatex math, boolean error,
+                float placeholderWidth) {
+            this.x = x;
+            this.text = text;
+            this.math = math;
+            this.error = error;
+            this.placeholderWidth = placeholderWidth;
+        }
+    }
+    
+    private final List<Run> runs;
+    private final List<LatexTokenizer.Token> missingMath;
+    private final float width;
+    private final float height;
+    private final float textAscent;
+    private final float textDescent;
+    
+    private LatexParagraphLayout(List<Run> runs, List<LatexTokenizer.Token> missingMath, float width,
+                                 float height, float textAscent, float textDescent) {
+        this.runs = runs;
+        this.missingMath = missingMath;
+        this.width = width;
+        this.height = height;
+        this.textAscent = textAscent;
+        this.textDescent = textDescent;
+    }
+    
+    float getWidth() {
+        return width;
+    }
+    
+    float getHeight() {
+        return height;
+    }
+    
+    int getPixelWidth() {
+        return (int) Math.ceil(width);
+    }
+    
+    int getPixelHeight() {
+        return (int) Math.ceil(height);
+    }
+    
+    /** Math tokens laid out as placeholders because they were not in the typeset cache. */
+    @NonNull
+    List<LatexTokenizer.Token> getMissingMath() {
+        return missingMath;
+    }
+    
+    /** Creates the text paint for a size in sp, matching React Native text scaling. */
+    @NonNull
+    static TextPaint createTextPaint(@NonNull Context context, float fontSizeSp) {
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(spToPx(context, fontSizeSp));
+        return paint;
+    }
+    
+    /**
+     * The pixel font size a math token is typeset at, and so its typeset cache key.
+     * A display math size of 0 falls back to the inline math size.
+     */
+    static float mathFontSizePx(@NonNull Context context, @NonNull LatexTokenizer.Token token,
+                                float mathFontSizeSp, float displayMathFontSizeSp) {
+        boolean display = token.type == LatexTokenizer.Type.DISPLAY_MATH && displayMathFontSizeSp > 0;
+        return spToPx(context, display ? displayMathFontSizeSp : mathFontSizeSp);
+    }
+    
+    private static float spToPx(@NonNull Context context, float sp) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, sp, context.getResources().getDisplayMetrics());
+    }
+    
+    /**
+     * Shared Yoga measurement for the Paper shadow node and the Fabric ViewManager.measure()
+     * path. Font sizes are in sp, everything else in pixels.
+     */
+    static long measure(@NonNull Context context, @Nullable String text, float fontSize,
+                        float mathFontSize, float displayMathFontSize,
+                        float width, YogaMeasureMode widthMode,
+                        float height, YogaMeasureMode heightMode) {
+        if (text == null || text.isEmpty()) {
+            return YogaMeasureOutput.make(0, 0);
+        }
+        long start = LatexMetrics.now();
+        float maxWidth = widthMode == YogaMeasureMode.UNDEFINED ? Float.POSITIVE_INFINITY : width;
+        LatexParagraphLayout layout = build(context, LatexTokenizer.tokenize(text),
+            createTextPaint(context, fontSize), mathFontSize, displayMathFontSize, maxWidth);
+        
+        float measuredWidth = layout.getPixelWidth();
+        float measuredHeight = layout.getPixelHeight();
+        if (widthMode == YogaMeasureMode.EXACTLY) {
+            measuredWidth = width;
+        } else if (widthMode == YogaMeasureMode.AT_MOST) {
+            measuredWidth = Math.min(measuredWidth, width);
+        }
+        if (heightMode == YogaMeasureMode.EXACTLY) {
+            measuredHeight = height;
+        } else if (heightMode == YogaMeasureMode.AT_MOST) {
+            measuredHeight = Math.min(measuredHeight, height);
+        }
+        LatexMetrics.record(LatexMetrics.Phase.MEASURE, start);
+        return YogaMeasureOutput.make(measuredWidth, measuredHeight);
+    }
+    
+    /** Builds the layout, typesetting equations missing from the cache. Not for the main thread. */
+    @NonNull
+    static LatexParagraphLayout build(@NonNull Context context, @NonNull List<LatexTokenizer.Token> tokens,
+                                      @NonNull TextPaint paint, float mathFontSize, float displayMathFontSize,
+                                      float maxWidth) {
+        return new Builder(context, paint, mathFontSize, displayMathFontSize, maxWidth, true).build(tokens);
+    }
+    
+    /**
+     * Builds the layout from cached equations only, with placeholders for the rest.
+     * Cheap enough for the main thread.
+     */
+    @NonNull
+    static LatexParagraphLayout buildCached(@NonNull Context context, @NonNull List<LatexTokenizer.Token> tokens,
+                                            @NonNull TextPaint paint, float mathFontSize, float displayMathFontSize,
+                                            float maxWidth) {
+        return new Builder(context, paint, mathFontSize, displayMathFontSize, maxWidth, false).build(tokens);
+    }
+    
+    /**
+     * Draws the paragraph with its top-left corner at (left, top).
+     */
+    void draw(@NonNull Canvas canvas, float left, float top, @NonNull TextPaint paint, int color) {
+        for (Run run : runs) {
+            if (run.placeholderWidth > 0) {
+                paint.setColor((color & 0x00FFFFFF) | (PLACEHOLDER_ALPHA << 24));
+                canvas.drawRect(left + run.x, top + run.baseline - textAscent,
+                    left + run.x + run.placeholderWidth, top + run.baseline + textDescent, paint);
+            } else if (run.math != null) {
+                run.math.draw(canvas, left + run.x, top + run.baseline - run.math.getAscent(), color);
+            } else if (run.text != null) {
+                paint.setColor(run.error ? ERROR_TEXT_COLOR : color);
+                canvas.drawText(run.text, left + run.x, top + run.baseline, paint);
+            }
+        }
+    }
+    
+    private static final class Builder {
+        private final Context context;
+        private final TextPaint paint;
+        private final float mathFontSizeSp;
+        private final float displayMathFontSizeSp;
+        private final float maxWidth;
+        private final boolean typesetMissing;
+        private final float density;
+        private final float textAscent;
+        private final float textDescent;
+        private final float displaySpacing;
+        
+        private final List<Run> runs = new ArrayList<>();
+        private final List<LatexTokenizer.Token> missing = new ArrayList<>();
+        private final List<Pending> line = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private float textStart = 0;
+        private boolean textIsError = false;
+        private float x = 0;
+        private float lineAscent;
+        private float lineDescent;
+        private float y = 0;
+        private float width = 0;
+        
+        Builder(Context context, TextPaint paint, float mathFontSize, float displayMathFontSize, float maxWidth,
+                boolean typesetMissing) {
+            this.context = context;
+            this.paint = paint;
+            this.mathFontSizeSp = mathFontSize;
+            this.displayMathFontSizeSp = displayMathFontSize;
+            this.maxWidth = maxWidth;
+            this.typesetMissing = typesetMissing;
+            this.density = context.getResources().getDisplayMetrics().density;
+            Paint.FontMetrics metrics = paint.getFontMetrics();
+            this.textAscent = -metrics.ascent;
+            this.textDescent = metrics.descent;
+            this.displaySpacing = (textAscent + textDescent) * 0.25f;
+            resetLine();
+        }
+        
+        LatexParagraphLayout build(List<LatexTokenizer.Token> tokens) {
+            for (LatexTokenizer.Token token : tokens) {
+                switch (token.type) {
+                    case TEXT:
+                        addText(token.content);
+                        break;
+                    case INLINE_MATH:
+                        addMath(token);
+                        break;
+                    case DISPLAY_MATH:
+                        if (!line.isEmpty() || text.length() > 0) {
+                            finishLine();
+                        }
+                        y += displaySpacing;
+                        addMath(token);
+                        finishLine();
+                        y += displaySpacing;
+                        break;
+                }
+            }
+            if (!line.isEmpty() || text.length() > 0) {
+                finishLine();
+            }
+            return new LatexParagraphLayout(runs, missing, width, y, textAscent, textDescent);
+        }
+        
+        private void addText(String content) {
+            int length = content.length();
+            int start = 0;
+            while (start < length) {
+                char c = content.charAt(start);
+                if (c == '\n') {
+                    finishLine();
+                    start++;
+                    continue;
+                }
+                // A word plus the spaces after it; only the word has to fit
+                int wordEnd = start;
+                while (wordEnd < length && content.charAt(wordEnd) != ' ' && content.charAt(wordEnd) != '\n') {
+                    wordEnd++;
+                }
+                int end = wordEnd;
+                while (end < length && content.charAt(end) == ' ') {
+                    end++;
+                }
+                
+                float wordWidth = paint.measureText(content, start, wordEnd);
+                if (x > 0 && x + wordWidth > maxWidth) {
+                    finishLine();
+                    if (wordEnd == start) {
+                        // Spaces that caused the wrap are dropped at the line start
+                        start = end;
+                        continue;
+                    }
+                }
+                if (text.length() == 0) {
+                    textStart = x;
+                }
+                text.append(content, start, end);
+                x += paint.measureText(content, start, end);
+                start = end;
+            }
+        }
+        
+        private void addMath(LatexTokenizer.Token token) {
+            String latex = token.content;
+            float fontSize = mathFontSizePx(context, token, mathFontSizeSp, displayMathFontSizeSp);
+            LatexTypesetCache cache = LatexTypesetCache.getInstance();
+            TypesetLatex typeset = typesetMissing
+                ? cache.get(context, latex, fontSize, density)
+                : cache.peek(latex, fontSize, density);
+            if (typeset == null) {
+                missing.add(token);
+                addBox(paint.measureText(latex), null, textAscent, textDescent);
+                return;
+            }
+            if (typeset.hasError()) {
+                flushText();
+                textIsError = true;
+                addText(latex);
+                flushText();
+                textIsError = false;
+                return;
+            }
+            addBox(typeset.getWidth(), typeset, typeset.getAscent(), typeset.getDescent());
+        }
+        
+        /** Places an unbreakable box: a typeset equation, or a placeholder if math is null. */
+        private void addBox(float boxWidth, @Nullable TypesetLatex math, float ascent, float descent) {
+            if (x > 0 && x + boxWidth > maxWidth) {
+                finishLine();
+            }
+            flushText();
+            line.add(new Pending(x, null, math, false, math == null ? boxWidth : 0));
+            x += boxWidth;
+            lineAscent = Math.max(lineAscent, ascent);
+            lineDescent = Math.max(lineDescent, descent);
+        }
+        
+        private void flushText() {
+            if (text.length() > 0) {
+                line.add(new Pending(textStart, text.toString(), null, textIsError, 0));
+                text.setLength(0);
+            }
+        }
+        
+        private void finishLine() {
+            flushText();
+            float baseline = y + lineAscent;
+            for (Pending pending : line) {
+                runs.add(new Run(pending.x, baseline, pending.text, pending.math, pending.error,
+                    pending.placeholderWidth));
+            }
+            width = Math.max(width, x);
+            y = baseline + lineDescent;
+            line.clear();
+            x = 0;
+            resetLine();
+        }
+        
+        private void resetLine() {
+            lineAscent = textAscent;
+            lineDescent = textDescent;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.latexrenderer.latex;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.uimanager.LayoutShadowNode;
+import com.facebook.react.uimanager.annotations.ReactProp;
+import com.facebook.yoga.YogaMeasureFunction;
+import com.facebook.yoga.YogaMeasureMode;
+import com.facebook.yoga.YogaNode;
+
+/**
+ * LatexParagraphShadowNode - Yoga shadow node measuring a wrapped LaTeX paragraph.
+ *
+ * Used by the Paper renderer; Fabric measures through
+ * {@link LatexParagraphViewManager#measure}. Color never affects size and is not mirrored.
+ */
+public class LatexParagraphShadowNode extends LayoutShadowNode implements YogaMeasureFunction {
+    
+    private String text = "";
+    private float fontSize = 16f;
+    private float mathFontSize = 20f;
+    private float displayMathFontSize = 0f;
+    
+    public LatexParagraphShadowNode() {
+        setMeasureFunction(this);
+    }
+    
+    @ReactProp(name = "text")
+    public void setText(@Nullable String text) {
+        String value = text != null ? text : "";
+        if (!value.equals(this.text)) {
+            this.text = value;
+            dirty();
+        }
+    }
+    
+    @ReactProp(name = "fontSize", defaultFloat = 16f)
+    public void setFontSize(float fontSize) {
+        if (fontSize != this.fontSize) {
+            this.fontSize = fontSize;
+            dirty();
+        }
+    }
+    
+    @ReactProp(name = "mathFontSize", defaultFloat = 20f)
+    public void setMathFontSize(float mathFontSize) {
+        if (mathFontSize != this.mathFontSize) {
+            this.mathFontSize = mathFontSize;
+            dirty();
+        }
+    }
+    
+    @ReactProp(name = "displayMathFontSize", defaultFloat = 0f)
+    public void setDisplayMathFontSize(float displayMathFontSize) {
+        if (displayMathFontSize != this.displayMathFontSize) {
+            this.displayMathFontSize = displayMathFontSize;
+            dirty();
+        }
+    }
+    
+    @Override
+    public long measure(YogaNode node, float width, YogaMeasureMode widthMode,
+                        float height, YogaMeasureMode heightMode) {
+        return LatexParagraphLayout.measure(getThemedContext(), text, fontSize, mathFontSize,
+            displayMathFontSize, width, widthMode, height, heightMode);
+    }
+}
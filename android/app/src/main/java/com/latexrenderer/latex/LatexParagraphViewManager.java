@@ -0,0 +1,139 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.ReadableMap;
+import com.facebook.react.uimanager.LayoutShadowNode;
+import com.facebook.react.uimanager.PixelUtil;
+import com.facebook.react.uimanager.SimpleViewManager;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.ViewManagerDelegate;
+import com.facebook.react.uimanager.annotations.ReactProp;
+import com.facebook.react.viewmanagers.NativeLatexParagraphViewManagerDelegate;
+import com.facebook.react.viewmanagers.NativeLatexParagraphViewManagerInterface;
+import com.facebook.yoga.YogaMeasureMode;
+import com.facebook.yoga.YogaMeasureOutput;
+
+/**
+ * LatexParagraphViewManager - React Native ViewManager for NativeLatexParagraphView.
+ *
+ * Measurement mirrors {@link LatexViewManager}:
+ * - Fabric: codegen delegate for props and {@link #measure} for synchronous sizing
+ * - Paper: @ReactProp setters and {@link LatexParagraphShadowNode}
+ */
+public class LatexParagraphViewManager extends SimpleViewManager<NativeLatexParagraphView>
+        implements NativeLatexParagraphViewManagerInterface<NativeLatexParagraphView> {
+    
+    public static final String REACT_CLASS = "NativeLatexParagraphView";
+    
+    private final ViewManagerDelegate<NativeLatexParagraphView> delegate =
+        new NativeLatexParagraphViewManagerDelegate<>(this);
+    
+    @Nullable
+    @Override
+    protected ViewManagerDelegate<NativeLatexParagraphView> getDelegate() {
+        return delegate;
+    }
+    
+    @NonNull
+    @Override
+    public String getName() {
+        return REACT_CLASS;
+    }
+    
+    @NonNull
+    @Override
+    protected NativeLatexParagraphView createViewInstance(@NonNull ThemedReactContext reactContext) {
+        return new NativeLatexParagraphView(reactContext);
+    }
+    
+    @NonNull
+    @Override
+    public LatexParagraphShadowNode createShadowNodeInstance() {
+        return new LatexParagraphShadowNode();
+    }
+    
+    @NonNull
+    @Override
+    public Class<? extends LayoutShadowNode> getShadowNodeClass() {
+        return LatexParagraphShadowNode.class;
+    }
+    
+    @Override
+    @ReactProp(name = "text")
+    public void setText(NativeLatexParagraphView view, @Nullable String text) {
+        view.setText(text);
+    }
+    
+    @Override
+    @ReactProp(name = "fontSize", defaultFloat = 16f)
+    public void setFontSize(NativeLatexParagraphView view, float fontSize) {
+        view.setFontSize(fontSize);
+    }
+    
+    @Override
+    @ReactProp(name = "mathFontSize", defaultFloat = 20f)
+    public void setMathFontSize(NativeLatexParagraphView view, float mathFontSize) {
+        view.setMathFontSize(mathFontSize);
+    }
+    
+    @Override
+    @ReactProp(name = "displayMathFontSize", defaultFloat = 0f)
+    public void setDisplayMathFontSize(NativeLatexParagraphView view, float displayMathFontSize) {
+        view.setDisplayMathFontSize(displayMathFontSize);
+    }
+    
+    @Override
+    @ReactProp(name = "textColor")
+    public void setTextColor(NativeLatexParagraphView view, @Nullable String color) {
+        int parsedColor = Color.BLACK;
+        if (color != null && !color.isEmpty()) {
+            try {
+                parsedColor = Color.parseColor(color);
+            } catch (IllegalArgumentException e) {
+                parsedColor = Color.BLACK;
+            }
+        }
+        view.setTextColor(parsedColor);
+    }
+    
+    /**
+     * Fabric measurement, called synchronously from the C++ NativeLatexParagraphViewShadowNode.
+     * Constraints arrive in pixels and the result is returned in DIPs.
+     */
+    @Override
+    public long measure(Context context, ReadableMap localData, ReadableMap props, ReadableMap state,
+                        float width, YogaMeasureMode widthMode, float height, YogaMeasureMode heightMode,
+                        @Nullable float[] attachmentsPositions) {
+        String text = props != null && props.hasKey("text") ? props.getString("text") : null;
+        float fontSize = readFloat(props, "fontSize", 16f);
+        float mathFontSize = readFloat(props, "mathFontSize", 20f);
+        float displayMathFontSize = readFloat(props, "displayMathFontSize", 0f);
+        long size = LatexParagraphLayout.measure(context, text, fontSize, mathFontSize, displayMathFontSize,
+            width, widthMode, height, heightMode);
+        return YogaMeasureOutput.make(
+            PixelUtil.toDIPFromPixel(YogaMeasureOutput.getWidth(size)),
+            PixelUtil.toDIPFromPixel(YogaMeasureOutput.getHeight(size))
+        );
+    }
+    
+    @Override
+    public void onDropViewInstance(@NonNull NativeLatexParagraphView view) {
+        super.onDropViewInstance(view);
+        view.release();
+    }
+    
+    @Override
+    public void onAfterUpdateTransaction(@NonNull NativeLatexParagraphView view) {
+        super.onAfterUpdateTransaction(view);
+        view.commitProps();
+    }
+    
+    private static float readFloat(@Nullable ReadableMap props, String key, float fallback) {
+        return props != null && props.hasKey(key) && !props.isNull(key) ? (float) props.getDouble(key) : fallback;
+    }
+}
@@ -0,0 +1,180 @@
+package com.latexrenderer.latex;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.agog.mathdisplay.parse.MTMathList;
+import com.agog.mathdisplay.parse.MTMathListBuilder;
+import com.agog.mathdisplay.parse.MTParseError;
+import com.agog.mathdisplay.parse.MTParseErrors;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LatexParseCache - Process-wide cache of parsed LaTeX math lists.
+ *
+ * Every NativeLatexView showing the same equation receives the same
+ * {@link ParsedLatex} instance, so each distinct string is parsed once:
+ * - Keys are normalized (trimmed, whitespace runs collapsed)
+ * - Bounded by both an entry count and an estimated byte budget
+ * - Least recently used entries are evicted first
+ * - Parse failures are cached too, so broken input is not re-parsed on every bind
+ */
+public final class LatexParseCache {
+    
+    private static final String TAG = "LatexParseCache";
+    
+    public static final int DEFAULT_MAX_ENTRIES = 512;
+    public static final long DEFAULT_MAX_BYTES = 2L * 1024 * 1024;
+    
+    private static final LatexParseCache INSTANCE = new LatexParseCache();
+    
+    private final LinkedHashMap<String, ParsedLatex> entries = new LinkedHashMap<>(64, 0.75f, true);
+    
+    private int maxEntries = DEFAULT_MAX_ENTRIES;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long currentBytes = 0;
+    
+    private LatexParseCache() {
+    }
+    
+    @NonNull
+    public static LatexParseCache getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Normalizes a LaTeX string so trivially different spellings share one entry.
+     * Whitespace is insignificant in math mode apart from terminating control words,
+     * so collapsing runs to a single space keeps the meaning intact.
+     */
+    @NonNull
+    public static String normalize(@NonNull String latex) {
+        String trimmed = latex.trim();
+        StringBuilder builder = null;
+        boolean previousWasSpace = false;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            boolean isSpace = Character.isWhitespace(c);
+            if (isSpace && (previousWasSpace || c != ' ')) {
+                if (builder == null) {
+                    builder = new StringBuilder(trimmed.length());
+                    builder.append(trimmed, 0, i);
+                }
+                if (!previousWasSpace) {
+                    builder.append(' ');
+                }
+            } else if (builder != null) {
+                builder.append(c);
+            }
+            previousWasSpace = isSpace;
+        }
+        return builder != null ? builder.toString() : trimmed;
+    }
+    
+    /**
+     * Returns the parse result for the given LaTeX, parsing it on a miss.
+     * Parsing happens outside the lock; if two threads race on the same key the
+     * first result stored wins so every caller still sees a single instance.
+     */
+    @NonNull
+    public ParsedLatex get(@NonNull String latex) {
+        String key = normalize(latex);
+        
+        synchronized (this) {
+            ParsedLatex cached = entries.get(key);
+            if (cached != null) {
+                hitCount++;
+                return cached;
+            }
+            missCount++;
+        }
+        
+        long start = LatexMetrics.now();
+        ParsedLatex parsed = parse(key);
+        LatexMetrics.record(LatexMetrics.Phase.PARSE, start);
+        
+        synchronized (this) {
+            ParsedLatex existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            entries.put(key, parsed);
+            currentBytes += parsed.getEstimatedBytes();
+            trimToBudget();
+        }
+        return parsed;
+    }
+    
+    /** Updates the cache budget, evicting entries immediately if needed. */
+    public synchronized void setBudget(int maxEntries, long maxBytes) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(1, maxBytes);
+        trimToBudget();
+    }
+    
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long sizeBytes() {
+        return currentBytes;
+    }
+    
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+    
+    /**
+     * Evicts least recently used entries until the cache holds at most targetBytes.
+     * The budget itself is unchanged.
+     */
+    public synchronized void trimToSize(long targetBytes) {
+        Iterator<Map.Entry<String, ParsedLatex>> iterator = entries.entrySet().iterator();
+        while (currentBytes > targetBytes && iterator.hasNext()) {
+            ParsedLatex evicted = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= evicted.getEstimatedBytes();
+        }
+    }
+    
+    private void trimToBudget() {
+        Iterator<Map.Entry<String, ParsedLatex>> iterator = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || currentBytes > maxBytes) && iterator.hasNext()) {
+            ParsedLatex evicted = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= evicted.getEstimatedBytes();
+        }
+    }
+    
+    @NonNull
+    private static ParsedLatex parse(@NonNull String latex) {
+        MTParseError error = new MTParseError();
+        MTMathList mathList = null;
+        try {
+            mathList = MTMathListBuilder.Companion.buildFromString(latex, error);
+        } catch (Exception e) {
+            Log.e(TAG, "Parser threw for: " + latex, e);
+            return new ParsedLatex(latex, null, e.getMessage() != null ? e.getMessage() : "LaTeX Error");
+        }
+        if (mathList == null || error.getErrorcode() != MTParseErrors.ErrorNone) {
+            String message = error.getErrordesc();
+            return new ParsedLatex(latex, null, message.isEmpty() ? "LaTeX Error" : message);
+        }
+        return new ParsedLatex(latex, mathList, null);
+    }
+}
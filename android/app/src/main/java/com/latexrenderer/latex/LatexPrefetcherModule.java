@@ -0,0 +1,134 @@
+package com.latexrenderer.latex;
+
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableType;
+import com.facebook.react.module.annotations.ReactModule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * LatexPrefetcherModule - TurboModule that warms the caches ahead of the viewport.
+ *
+ * JS passes the LaTeX of rows about to scroll into view; they are parsed and
+ * typeset into {@link LatexParseCache} and {@link LatexTypesetCache} so the
+ * views find their display lists ready when they bind:
+ * - Queued on {@link LatexRenderScheduler} at PREFETCH priority, so visible
+ *   and offscreen view renders always go first
+ * - Each prefetch returns a token; cancelling it drops the equations still queued,
+ *   and the token is forgotten on its own once every equation has finished
+ * - Already cached equations are not queued at all
+ */
+@ReactModule(name = LatexPrefetcherModule.NAME)
+public class LatexPrefetcherModule extends NativeLatexPrefetcherSpec {
+    
+    public static final String NAME = "LatexPrefetcher";
+    
+    private final Map<Integer, Job> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger nextToken = new AtomicInteger(1);
+    
+    /**
+     * The requests queued by one prefetch call. The token is forgotten once the
+     * last of them finishes, so callers that never cancel do not leak entries.
+     */
+    private final class Job implements LatexRenderScheduler.Callback {
+        private final int token;
+        private final List<LatexRenderScheduler.Request> requests = new ArrayList<>();
+        // One extra count, released once every request has been submitted
+        private final AtomicInteger remaining = new AtomicInteger(1);
+        
+        Job(int token) {
+            this.token = token;
+        }
+        
+        synchronized void add(LatexRenderScheduler.Request request) {
+            requests.add(request);
+        }
+        
+        synchronized void cancelAll() {
+            for (LatexRenderScheduler.Request request : requests) {
+                LatexRenderScheduler.getInstance().cancel(request);
+            }
+        }
+        
+        void finish() {
+            if (remaining.decrementAndGet() == 0) {
+                jobs.remove(token, this);
+            }
+        }
+        
+        @Override
+        public void onTypesetReady(@NonNull LatexRenderScheduler.Request request, @NonNull TypesetLatex typeset) {
+            finish();
+        }
+        
+        @Override
+        public void onRenderDropped(@NonNull LatexRenderScheduler.Request request) {
+            finish();
+        }
+    }
+    
+    public LatexPrefetcherModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+    
+    @NonNull
+    @Override
+    public String getName() {
+        return NAME;
+    }
+    
+    @Override
+    public double prefetch(ReadableArray latexList, double fontSize) {
+        int token = nextToken.getAndIncrement();
+        float density = getReactApplicationContext().getResources().getDisplayMetrics().density;
+        LatexTypesetCache cache = LatexTypesetCache.getInstance();
+        LatexRenderScheduler scheduler = LatexRenderScheduler.getInstance();
+        // Registered before submitting: completions are delivered on the main thread
+        // and may arrive before this loop ends
+        Job job = new Job(token);
+        jobs.put(token, job);
+        int queued = 0;
+        for (int i = 0; i < latexList.size(); i++) {
+            if (latexList.getType(i) != ReadableType.String) {
+                continue;
+            }
+            String latex = latexList.getString(i);
+            if (latex == null || latex.isEmpty() || cache.contains(latex, (float) fontSize, density)) {
+                continue;
+            }
+            job.remaining.incrementAndGet();
+            job.add(scheduler.submit(getReactApplicationContext(), latex, (float) fontSize, density,
+                LatexRenderScheduler.Priority.PREFETCH, job));
+            queued++;
+        }
+        if (queued > 0) {
+            LatexTrace.event(LatexTrace.PREFETCH, token, queued, latexList.size());
+        }
+        job.finish();
+        return token;
+    }
+    
+    @Override
+    public void cancel(double token) {
+        Job job = jobs.remove((int) token);
+        if (job != null) {
+            job.cancelAll();
+        }
+    }
+    
+    @Override
+    public void invalidate() {
+        for (Job job : jobs.values()) {
+            job.cancelAll();
+        }
+        jobs.clear();
+        super.invalidate();
+    }
+}
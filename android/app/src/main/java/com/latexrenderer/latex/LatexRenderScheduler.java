@@ -0,0 +1,373 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LatexRenderScheduler - Prioritized background scheduler for parsing and typesetting.
+ *
+ * Requests are ordered by {@link Priority}, then by submission order:
+ * - VISIBLE: attached views on screen, always served first
+ * - OFFSCREEN: attached views outside the viewport, and detached views that may come back
+ * - PREFETCH: cache warming for rows about to scroll into view
+ *
+ * Views move their request between classes as they attach, detach and lay out.
+ * The queue is bounded: when it is full the lowest priority, most recently queued
+ * request is dropped, and its callback is told so it can render synchronously.
+ * A request whose view has been recycled for another equation is cancelled by
+ * the view, and cancelled or orphaned requests are skipped when dequeued.
+ *
+ * Raster requests first look for a persisted raster in {@link LatexDiskCache}, so
+ * bitmap mode never reads the disk on the main thread, and only parse and typeset
+ * on a disk miss.
+ *
+ * Results are delivered on the main thread, and only if the request has not been
+ * cancelled in the meantime. Queue depth and wait times are tracked per class,
+ * and wait times also feed the {@link LatexMetrics.Phase#QUEUE_WAIT} histogram.
+ */
+public final class LatexRenderScheduler {
+    
+    // Typesetting is serialized inside LatexTypesetCache, so more threads only help parsing
+    private static final int THREAD_COUNT = 2;
+    private static final int QUEUE_CAPACITY = 64;
+    
+    private static final LatexRenderScheduler INSTANCE = new LatexRenderScheduler();
+    
+    public enum Priority {
+        VISIBLE,
+        OFFSCREEN,
+        PREFETCH
+    }
+    
+    /**
+     * Receives render results on the main thread.
+     */
+    public interface Callback {
+        void onTypesetReady(@NonNull Request request, @NonNull TypesetLatex typeset);
+        
+        void onRenderDropped(@NonNull Request request);
+        
+        /**
+         * A raster request found its raster on disk; it is now in {@link LatexBitmapCache}.
+         * Only called for requests from {@link #submitRaster}.
+         */
+        default void onRasterReady(@NonNull Request request) {
+        }
+    }
+    
+    /**
+     * A single render request. Cancelling it prevents both the work (if not yet
+     * started) and the delivery of its result.
+     */
+    public static final class Request implements Runnable, Comparable<Request> {
+        
+        private final LatexRenderScheduler scheduler;
+        private final Context context;
+        private final String latex;
+        private final float fontSize;
+        private final float density;
+        private final boolean raster;
+        private final int color;
+        @Nullable
+        private final WeakReference<Callback> callback;
+        private final long sequence;
+        // From LatexMetrics.now()
+        private final long enqueuedAt;
+        
+        // Only changed while the request is out of the queue, see reprioritize()
+        private volatile Priority priority;
+        private volatile boolean cancelled = false;
+        
+        Request(LatexRenderScheduler scheduler, Context context, String latex, float fontSize, float density,
+                boolean raster, int color, Priority priority, @Nullable Callback callback, long sequence) {
+            this.scheduler = scheduler;
+            this.context = context.getApplicationContext();
+            this.latex = latex;
+            this.fontSize = fontSize;
+            this.density = density;
+            this.raster = raster;
+            this.color = color;
+            this.priority = priority;
+            this.callback = callback != null ? new WeakReference<>(callback) : null;
+            this.sequence = sequence;
+            this.enqueuedAt = LatexMetrics.now();
+        }
+        
+        @NonNull
+        public String getLatex() {
+            return latex;
+        }
+        
+        public float getFontSize() {
+            return fontSize;
+        }
+        
+        @NonNull
+        public Priority getPriority() {
+            return priority;
+        }
+        
+        public void cancel() {
+            cancelled = true;
+        }
+        
+        public boolean isCancelled() {
+            return cancelled;
+        }
+        
+        @Override
+        public int compareTo(@NonNull Request other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+        
+        @Override
+        public void run() {
+            scheduler.recordStart(this);
+            // The view was garbage collected without being dropped
+            if (callback != null && callback.get() == null) {
+                cancelled = true;
+            }
+            if (cancelled) {
+                scheduler.staleCount.incrementAndGet();
+                return;
+            }
+            if (raster && LatexBitmapCache.getInstance().loadFromDisk(context, latex, fontSize, density, color)) {
+                scheduler.completedCount.incrementAndGet();
+                if (!cancelled && callback != null) {
+                    scheduler.mainHandler.post(() -> {
+                        Callback target = callback.get();
+                        if (!cancelled && target != null) {
+                            target.onRasterReady(this);
+                        }
+                    });
+                }
+                return;
+            }
+            // Parse and typeset are separate phases so a request cancelled while
+            // parsing (e.g. its view was recycled mid-fling) skips the typeset
+            LatexParseCache.getInstance().get(latex);
+            if (cancelled) {
+                return;
+            }
+            final TypesetLatex typeset = LatexTypesetCache.getInstance().get(context, latex, fontSize, density);
+            scheduler.completedCount.incrementAndGet();
+            if (cancelled || callback == null) {
+                return;
+            }
+            scheduler.mainHandler.post(() -> {
+                Callback target = callback.get();
+                if (!cancelled && target != null) {
+                    target.onTypesetReady(this, typeset);
+                }
+            });
+        }
+        
+        void drop() {
+            scheduler.droppedCount.incrementAndGet();
+            if (callback == null) {
+                return;
+            }
+            scheduler.mainHandler.post(() -> {
+                Callback target = callback.get();
+                if (!cancelled && target != null) {
+                    target.onRenderDropped(this);
+                }
+            });
+        }
+    }
+    
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong nextSequence = new AtomicLong();
+    
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong staleCount = new AtomicLong();
+    private final Object statsLock = new Object();
+    private final long[] startedCount = new long[Priority.values().length];
+    private final long[] totalWaitMillis = new long[Priority.values().length];
+    private final long[] maxWaitMillis = new long[Priority.values().length];
+    private int maxQueueDepth = 0;
+    
+    private LatexRenderScheduler() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger(1);
+            
+            @Override
+            public Thread newThread(@NonNull Runnable runnable) {
+                return new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "latex-render-" + count.getAndIncrement());
+            }
+        };
+        // Always queue: a core thread started for a submission would run it ahead of the queue
+        executor = new ThreadPoolExecutor(
+            THREAD_COUNT,
+            THREAD_COUNT,
+            30,
+            TimeUnit.SECONDS,
+            new PriorityBlockingQueue<>(QUEUE_CAPACITY),
+            threadFactory
+        );
+        executor.prestartAllCoreThreads();
+    }
+    
+    @NonNull
+    public static LatexRenderScheduler getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Queues a parse and typeset for the given key. The returned request can be
+     * cancelled when the caller no longer wants the result. A null callback only
+     * warms the caches.
+     */
+    @NonNull
+    public Request submit(@NonNull Context context, @NonNull String latex, float fontSize, float density,
+                          @NonNull Priority priority, @Nullable Callback callback) {
+        return enqueue(new Request(this, context, latex, fontSize, density, false, 0, priority, callback,
+            nextSequence.getAndIncrement()));
+    }
+    
+    /**
+     * Like {@link #submit}, but first loads a raster in the given color from disk into
+     * {@link LatexBitmapCache}, reporting it through {@link Callback#onRasterReady}.
+     * Parses and typesets only if there is none.
+     */
+    @NonNull
+    public Request submitRaster(@NonNull Context context, @NonNull String latex, float fontSize, float density,
+                                int color, @NonNull Priority priority, @NonNull Callback callback) {
+        return enqueue(new Request(this, context, latex, fontSize, density, true, color, priority, callback,
+            nextSequence.getAndIncrement()));
+    }
+    
+    @NonNull
+    private Request enqueue(@NonNull Request request) {
+        Request dropped = null;
+        synchronized (this) {
+            if (executor.getQueue().size() >= QUEUE_CAPACITY) {
+                Request worst = worstQueued();
+                if (worst != null && worst.compareTo(request) > 0 && executor.remove(worst)) {
+                    dropped = worst;
+                } else {
+                    dropped = request;
+                }
+            }
+            if (dropped != request) {
+                executor.execute(request);
+            }
+            int depth = executor.getQueue().size();
+            synchronized (statsLock) {
+                maxQueueDepth = Math.max(maxQueueDepth, depth);
+            }
+        }
+        if (dropped != null) {
+            LatexTrace.event(LatexTrace.QUEUE_FULL, 0, dropped.priority.ordinal(), executor.getQueue().size());
+            dropped.drop();
+        }
+        return request;
+    }
+    
+    /**
+     * Moves a queued request to another priority class, keeping its place among
+     * requests submitted before it. Running or finished requests are unaffected.
+     */
+    public synchronized void reprioritize(@Nullable Request request, @NonNull Priority priority) {
+        if (request == null || request.cancelled || request.priority == priority) {
+            return;
+        }
+        if (executor.remove(request)) {
+            request.priority = priority;
+            executor.execute(request);
+        } else {
+            request.priority = priority;
+        }
+    }
+    
+    /** Removes a cancelled request from the queue if it has not started yet. */
+    public void cancel(@Nullable Request request) {
+        if (request == null) {
+            return;
+        }
+        request.cancel();
+        synchronized (this) {
+            executor.remove(request);
+        }
+    }
+    
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+    
+    public int getMaxQueueDepth() {
+        synchronized (statsLock) {
+            return maxQueueDepth;
+        }
+    }
+    
+    /** Average time requests of the given class waited in the queue, in milliseconds. */
+    public double getAverageWaitMillis(@NonNull Priority priority) {
+        synchronized (statsLock) {
+            long started = startedCount[priority.ordinal()];
+            return started == 0 ? 0 : (double) totalWaitMillis[priority.ordinal()] / started;
+        }
+    }
+    
+    public long getMaxWaitMillis(@NonNull Priority priority) {
+        synchronized (statsLock) {
+            return maxWaitMillis[priority.ordinal()];
+        }
+    }
+    
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+    
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+    
+    /** Requests skipped at dequeue because they were cancelled or their view is gone. */
+    public long getStaleCount() {
+        return staleCount.get();
+    }
+    
+    private void recordStart(Request request) {
+        LatexMetrics.record(LatexMetrics.Phase.QUEUE_WAIT, request.enqueuedAt);
+        long wait = (LatexMetrics.now() - request.enqueuedAt) / 1_000_000;
+        int index = request.priority.ordinal();
+        synchronized (statsLock) {
+            startedCount[index]++;
+            totalWaitMillis[index] += wait;
+            maxWaitMillis[index] = Math.max(maxWaitMillis[index], wait);
+        }
+    }
+    
+    @Nullable
+    private Request worstQueued() {
+        Request worst = null;
+        for (Runnable runnable : executor.getQueue()) {
+            Request queued = (Request) runnable;
+            if (worst == null || queued.compareTo(worst) > 0) {
+                worst = queued;
+            }
+        }
+        return worst;
+    }
+}
@@ -0,0 +1,54 @@
+package com.latexrenderer.latex;
+
+import androidx.annotation.Nullable;
+
+import com.facebook.react.uimanager.LayoutShadowNode;
+import com.facebook.react.uimanager.annotations.ReactProp;
+import com.facebook.yoga.YogaMeasureFunction;
+import com.facebook.yoga.YogaMeasureMode;
+import com.facebook.yoga.YogaNode;
+
+/**
+ * LatexShadowNode - Yoga shadow node that measures the real typeset size.
+ *
+ * The measure function runs on the layout thread and typesets through
+ * {@link LatexTypesetCache}, so:
+ * - Yoga gets the exact equation size on the first layout pass
+ * - The view usually finds its display list already cached when props arrive
+ *
+ * Only color-independent props are mirrored here; color never affects size.
+ * This node is used by the Paper renderer; Fabric measures through
+ * {@link LatexViewManager#measure}.
+ */
+public class LatexShadowNode extends LayoutShadowNode implements YogaMeasureFunction {
+    
+    private String latex = "";
+    private float fontSize = 20f;
+    
+    public LatexShadowNode() {
+        setMeasureFunction(this);
+    }
+    
+    @ReactProp(name = "latex")
+    public void setLatex(@Nullable String latex) {
+        String value = latex != null ? latex : "";
+        if (!value.equals(this.latex)) {
+            this.latex = value;
+            dirty();
+        }
+    }
+    
+    @ReactProp(name = "fontSize", defaultFloat = 20f)
+    public void setFontSize(float fontSize) {
+        if (fontSize != this.fontSize) {
+            this.fontSize = fontSize;
+            dirty();
+        }
+    }
+    
+    @Override
+    public long measure(YogaNode node, float width, YogaMeasureMode widthMode,
+                        float height, YogaMeasureMode heightMode) {
+        return LatexMeasurer.measure(getThemedContext(), latex, fontSize, width, widthMode, height, heightMode);
+    }
+}
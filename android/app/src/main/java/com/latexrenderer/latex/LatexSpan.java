@@ -0,0 +1,69 @@
+package com.latexrenderer.latex;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.style.ReplacementSpan;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * LatexSpan - Draws a typeset equation inline in Android text.
+ *
+ * Replaces its placeholder character in a Spannable, so StaticLayout and
+ * TextView wrap math like any other unbreakable run:
+ * - getSize() reports the real typeset width and grows the line's ascent and
+ *   descent to fit the equation
+ * - The equation sits on the text baseline and is drawn in the paint color,
+ *   so ForegroundColorSpan and TextView colors apply
+ * - Equations that fail to typeset are drawn as their source text
+ *
+ * The display list is shared through {@link LatexTypesetCache}; spans are cheap
+ * and can be created off the main thread.
+ */
+public class LatexSpan extends ReplacementSpan {
+    
+    private final TypesetLatex typeset;
+    
+    public LatexSpan(@NonNull TypesetLatex typeset) {
+        this.typeset = typeset;
+    }
+    
+    @NonNull
+    public TypesetLatex getTypeset() {
+        return typeset;
+    }
+    
+    @Override
+    public int getSize(@NonNull Paint paint, CharSequence text, int start, int end,
+                       @Nullable Paint.FontMetricsInt fm) {
+        if (typeset.hasError()) {
+            String source = typeset.getParsed().getLatex();
+            if (fm != null) {
+                paint.getFontMetricsInt(fm);
+            }
+            return (int) Math.ceil(paint.measureText(source));
+        }
+        if (fm != null) {
+            // Start from the text metrics so short equations never shrink the line
+            paint.getFontMetricsInt(fm);
+            int ascent = (int) Math.ceil(typeset.getAscent());
+            int descent = (int) Math.ceil(typeset.getDescent());
+            fm.ascent = Math.min(fm.ascent, -ascent);
+            fm.top = Math.min(fm.top, fm.ascent);
+            fm.descent = Math.max(fm.descent, descent);
+            fm.bottom = Math.max(fm.bottom, fm.descent);
+        }
+        return typeset.getPixelWidth();
+    }
+    
+    @Override
+    public void draw(@NonNull Canvas canvas, CharSequence text, int start, int end,
+                     float x, int top, int y, int bottom, @NonNull Paint paint) {
+        if (typeset.hasError()) {
+            canvas.drawText(typeset.getParsed().getLatex(), x, y, paint);
+            return;
+        }
+        typeset.draw(canvas, x, y - typeset.getAscent(), paint.getColor());
+    }
+}
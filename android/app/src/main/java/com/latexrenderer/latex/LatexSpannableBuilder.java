@@ -0,0 +1,114 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.text.Spannable;
+import android.text.SpannableStringBuilder;
+import android.text.Spanned;
+import android.widget.TextView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * LatexSpannableBuilder - Turns a paragraph with $...$ / $$...$$ math into a Spannable.
+ *
+ * Each equation becomes an object replacement character carrying a {@link LatexSpan};
+ * display math is put on its own line. The result can be given to any TextView or
+ * StaticLayout, or built and precomputed off the main thread with
+ * {@link #setTextAsync}, so math-heavy prose costs one text layout and no extra views.
+ * Math sizes are in sp and scaled like {@link NativeLatexParagraphView}'s, so both
+ * share typeset cache entries.
+ */
+public final class LatexSpannableBuilder {
+    
+    private static final char OBJECT_REPLACEMENT = '\uFFFC';
+    
+    // Latest request per view, so a slow build never overwrites newer text
+    private static final Map<TextView, Object> pendingRequests = new WeakHashMap<>();
+    
+    private LatexSpannableBuilder() {
+    }
+    
+    /**
+     * Builds the spannable, typesetting equations through {@link LatexTypesetCache}.
+     * Safe to call on any thread.
+     */
+    @NonNull
+    public static Spannable build(@NonNull Context context, @NonNull String paragraph,
+                                  float mathFontSize, float displayMathFontSize) {
+        SpannableStringBuilder builder = new SpannableStringBuilder();
+        for (LatexTokenizer.Token token : LatexTokenizer.tokenize(paragraph)) {
+            switch (token.type) {
+                case TEXT:
+                    builder.append(token.content);
+                    break;
+                case INLINE_MATH:
+                    appendMath(builder, typeset(context, token, mathFontSize, displayMathFontSize));
+                    break;
+                case DISPLAY_MATH:
+                    if (builder.length() > 0 && builder.charAt(builder.length() - 1) != '\n') {
+                        builder.append('\n');
+                    }
+                    appendMath(builder, typeset(context, token, mathFontSize, displayMathFontSize));
+                    builder.append('\n');
+                    break;
+            }
+        }
+        return builder;
+    }
+    
+    /**
+     * Builds the spannable and its precomputed text layout on the executor, then
+     * sets it on the view from the main thread. Typesetting, line breaking and
+     * glyph measurement all happen off the main thread.
+     */
+    @MainThread
+    public static void setTextAsync(@NonNull TextView view, @NonNull String paragraph,
+                                    float mathFontSize, float displayMathFontSize,
+                                    @NonNull Executor executor) {
+        final Object request = new Object();
+        synchronized (pendingRequests) {
+            pendingRequests.put(view, request);
+        }
+        final Context context = view.getContext().getApplicationContext();
+        final PrecomputedTextCompat.Params params = TextViewCompat.getTextMetricsParams(view);
+        final WeakReference<TextView> viewRef = new WeakReference<>(view);
+        executor.execute(() -> {
+            Spannable text = build(context, paragraph, mathFontSize, displayMathFontSize);
+            PrecomputedTextCompat precomputed = PrecomputedTextCompat.create(text, params);
+            TextView target = viewRef.get();
+            if (target == null) {
+                return;
+            }
+            target.post(() -> {
+                synchronized (pendingRequests) {
+                    if (pendingRequests.get(target) != request) {
+                        return;
+                    }
+                    pendingRequests.remove(target);
+                }
+                TextViewCompat.setPrecomputedText(target, precomputed);
+            });
+        });
+    }
+    
+    private static TypesetLatex typeset(Context context, LatexTokenizer.Token token,
+                                        float mathFontSize, float displayMathFontSize) {
+        float size = LatexParagraphLayout.mathFontSizePx(context, token, mathFontSize, displayMathFontSize);
+        float density = context.getResources().getDisplayMetrics().density;
+        return LatexTypesetCache.getInstance().get(context, token.content, size, density);
+    }
+    
+    private static void appendMath(SpannableStringBuilder builder, TypesetLatex typeset) {
+        int start = builder.length();
+        builder.append(OBJECT_REPLACEMENT);
+        builder.setSpan(new LatexSpan(typeset), start, start + 1, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+    }
+}
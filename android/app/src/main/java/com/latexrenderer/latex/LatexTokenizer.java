@@ -0,0 +1,123 @@
+package com.latexrenderer.latex;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * LatexTokenizer - Splits a paragraph into text and $...$ / $$...$$ math tokens.
+ *
+ * Native replacement for the JS parseContent() regex pass, in one linear scan:
+ * - $$...$$ is display math, $...$ is inline math (content trimmed)
+ * - Inline spans that are just a number ($5$) stay text, as in parseContent()
+ * - Unclosed delimiters stay text
+ */
+final class LatexTokenizer {
+    
+    enum Type {
+        TEXT,
+        INLINE_MATH,
+        DISPLAY_MATH
+    }
+    
+    static final class Token {
+        final Type type;
+        final String content;
+        
+        Token(Type type, String content) {
+            this.type = type;
+            this.content = content;
+        }
+        
+        boolean isMath() {
+            return type != Type.TEXT;
+        }
+    }
+    
+    private LatexTokenizer() {
+    }
+    
+    @NonNull
+    static List<Token> tokenize(@NonNull String paragraph) {
+        if (paragraph.indexOf('$') < 0) {
+            return paragraph.isEmpty()
+                ? Collections.emptyList()
+                : Collections.singletonList(new Token(Type.TEXT, paragraph));
+        }
+        
+        List<Token> tokens = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        int length = paragraph.length();
+        int i = 0;
+        while (i < length) {
+            char c = paragraph.charAt(i);
+            if (c != '$') {
+                text.append(c);
+                i++;
+                continue;
+            }
+            
+            boolean display = i + 1 < length && paragraph.charAt(i + 1) == '$';
+            if (display) {
+                int close = paragraph.indexOf("$$", i + 2);
+                if (close < 0) {
+                    text.append(paragraph, i, length);
+                    break;
+                }
+                flushText(tokens, text);
+                tokens.add(new Token(Type.DISPLAY_MATH, paragraph.substring(i + 2, close).trim()));
+                i = close + 2;
+                continue;
+            }
+            
+            int close = paragraph.indexOf('$', i + 1);
+            if (close < 0) {
+                text.append(paragraph, i, length);
+                break;
+            }
+            String content = paragraph.substring(i + 1, close);
+            if (isNumber(content.trim())) {
+                // Currency such as $5$: keep the delimiters as plain text
+                text.append(paragraph, i, close + 1);
+            } else {
+                flushText(tokens, text);
+                tokens.add(new Token(Type.INLINE_MATH, content.trim()));
+            }
+            i = close + 1;
+        }
+        flushText(tokens, text);
+        return tokens;
+    }
+    
+    private static void flushText(List<Token> tokens, StringBuilder text) {
+        if (text.length() > 0) {
+            tokens.add(new Token(Type.TEXT, text.toString()));
+            text.setLength(0);
+        }
+    }
+    
+    /** Matches the JS check /^\d+(\.\d+)?$/. */
+    private static boolean isNumber(String value) {
+        int dot = value.indexOf('.');
+        String whole = dot < 0 ? value : value.substring(0, dot);
+        if (!isDigits(whole)) {
+            return false;
+        }
+        return dot < 0 || isDigits(value.substring(dot + 1));
+    }
+    
+    private static boolean isDigits(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
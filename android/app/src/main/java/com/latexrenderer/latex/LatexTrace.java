@@ -0,0 +1,175 @@
+package com.latexrenderer.latex;
+
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.latexrenderer.BuildConfig;
+
+/**
+ * LatexTrace - Allocation-free event tracing for the LaTeX hot paths.
+ *
+ * Replaces string-building Log.d calls in code that runs on every prop update,
+ * measure, layout and frame:
+ * - Events are fixed-size records (event id, view id, timestamp, duration and two
+ *   int arguments such as sizes) written into preallocated parallel arrays,
+ *   overwriting the oldest once {@link #CAPACITY} is reached
+ * - Timed events also open an android.os.Trace section, so they show up in Perfetto
+ * - {@link #dump()} formats the buffer, oldest first, on demand
+ *
+ * Everything is gated on {@link #ENABLED}, a BuildConfig constant
+ * (LATEX_TRACE_ENABLED: on in debug builds, or with -PlatexTrace=true), so R8 and
+ * the JIT remove the calls entirely when it is off.
+ */
+public final class LatexTrace {
+    
+    private static final String TAG = "LatexTrace";
+    
+    public static final boolean ENABLED = BuildConfig.LATEX_TRACE_ENABLED;
+    
+    public static final int CAPACITY = 1024;
+    
+    // Event ids, indexing EVENT_NAMES
+    public static final int SET_LATEX = 0;
+    public static final int SET_FONT_SIZE = 1;
+    public static final int SET_TEXT_COLOR = 2;
+    public static final int SET_RENDER_ASYNC = 3;
+    public static final int SET_RENDER_MODE = 4;
+    public static final int COMMIT_PROPS = 5;
+    public static final int RENDER = 6;
+    public static final int RENDER_SKIPPED = 7;
+    public static final int RENDER_QUEUED = 8;
+    public static final int RENDER_DEFERRED = 9;
+    public static final int TYPESET_STALE = 10;
+    public static final int ATTACH = 11;
+    public static final int DETACH = 12;
+    public static final int MEASURE = 13;
+    public static final int LAYOUT = 14;
+    public static final int DRAW = 15;
+    public static final int FRAME_BUDGET_SPENT = 16;
+    public static final int QUEUE_FULL = 17;
+    public static final int PREFETCH = 18;
+    public static final int IMAGE_RENDER_REMOVED = 19;
+    public static final int POOL_ACQUIRE = 20;
+    public static final int RENDER_ERROR = 21;
+    
+    private static final String[] EVENT_NAMES = {
+        "Latex.setLatex",
+        "Latex.setFontSize",
+        "Latex.setTextColor",
+        "Latex.setRenderAsync",
+        "Latex.setRenderMode",
+        "Latex.commitProps",
+        "Latex.render",
+        "Latex.renderSkipped",
+        "Latex.renderQueued",
+        "Latex.renderDeferred",
+        "Latex.typesetStale",
+        "Latex.attach",
+        "Latex.detach",
+        "Latex.measure",
+        "Latex.layout",
+        "Latex.draw",
+        "Latex.frameBudgetSpent",
+        "Latex.queueFull",
+        "Latex.prefetch",
+        "Latex.imageRenderRemoved",
+        "Latex.poolAcquire",
+        "Latex.renderError",
+    };
+    
+    private static final Object LOCK = new Object();
+    private static final int[] eventIds = new int[ENABLED ? CAPACITY : 0];
+    private static final int[] viewIds = new int[ENABLED ? CAPACITY : 0];
+    private static final long[] timestamps = new long[ENABLED ? CAPACITY : 0];
+    private static final long[] durations = new long[ENABLED ? CAPACITY : 0];
+    private static final int[] args0 = new int[ENABLED ? CAPACITY : 0];
+    private static final int[] args1 = new int[ENABLED ? CAPACITY : 0];
+    private static long recorded = 0;
+    
+    private LatexTrace() {
+    }
+    
+    /** Records an instant event. */
+    public static void event(int eventId, int viewId, int arg0, int arg1) {
+        if (!ENABLED) {
+            return;
+        }
+        record(eventId, viewId, System.nanoTime(), 0, arg0, arg1);
+    }
+    
+    /**
+     * Opens a trace section and returns its start time for {@link #end}. Sections
+     * must be closed on the same thread, in reverse order.
+     */
+    public static long begin(int eventId) {
+        if (!ENABLED) {
+            return 0;
+        }
+        Trace.beginSection(EVENT_NAMES[eventId]);
+        return System.nanoTime();
+    }
+    
+    /** Closes the section opened by {@link #begin} and records it. */
+    public static void end(int eventId, int viewId, long startNanos, int arg0, int arg1) {
+        if (!ENABLED) {
+            return;
+        }
+        Trace.endSection();
+        record(eventId, viewId, startNanos, System.nanoTime() - startNanos, arg0, arg1);
+    }
+    
+    /** Formats the buffered events, oldest first. Allocates; call on demand only. */
+    @NonNull
+    public static String dump() {
+        if (!ENABLED) {
+            return "LatexTrace disabled (set LATEX_TRACE_ENABLED)";
+        }
+        StringBuilder builder = new StringBuilder();
+        synchronized (LOCK) {
+            long count = Math.min(recorded, CAPACITY);
+            long first = recorded - count;
+            builder.append(count).append(" of ").append(recorded).append(" events\n");
+            for (long i = first; i < recorded; i++) {
+                int slot = (int) (i % CAPACITY);
+                builder.append(timestamps[slot] / 1000).append("us ")
+                    .append(EVENT_NAMES[eventIds[slot]])
+                    .append(" view=").append(viewIds[slot]);
+                if (durations[slot] != 0) {
+                    builder.append(" dur=").append(durations[slot] / 1000).append("us");
+                }
+                builder.append(" args=").append(args0[slot]).append(',').append(args1[slot]).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+    
+    public static void dumpToLog() {
+        for (String line : dump().split("\n")) {
+            Log.d(TAG, line);
+        }
+    }
+    
+    public static void clear() {
+        if (!ENABLED) {
+            return;
+        }
+        synchronized (LOCK) {
+            recorded = 0;
+        }
+    }
+    
+    private static void record(int eventId, int viewId, long timestamp, long duration, int arg0, int arg1) {
+        synchronized (LOCK) {
+            int slot = (int) (recorded % CAPACITY);
+            eventIds[slot] = eventId;
+            viewIds[slot] = viewId;
+            timestamps[slot] = timestamp;
+            durations[slot] = duration;
+            args0[slot] = arg0;
+            args1[slot] = arg1;
+            recorded++;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.agog.mathdisplay.parse.MTLineStyle;
+import com.agog.mathdisplay.render.MTFont;
+import com.agog.mathdisplay.render.MTFontManager;
+import com.agog.mathdisplay.render.MTMathListDisplay;
+import com.agog.mathdisplay.render.MTTypesetter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LatexTypesetCache - Process-wide cache of typeset display lists.
+ *
+ * Keyed by (normalized latex, fontSize, density); color is deliberately excluded
+ * because it is applied at draw time. Features:
+ * - Byte-budgeted LRU eviction
+ * - Hit, miss and eviction counters for sizing the budget on low-end devices
+ * - Parse results come from {@link LatexParseCache}, so a miss only re-typesets
+ * - Metrics of every successful typeset are persisted to {@link LatexDiskCache}
+ *
+ * The AndroidMath font manager and the font objects it caches per size are not
+ * safe for concurrent use, and display lists keep drawing with the font they
+ * were typeset with. Typesetting and {@link TypesetLatex#draw} are therefore
+ * serialized on {@link #FONT_LOCK}, whichever thread they run on.
+ */
+public final class LatexTypesetCache {
+    
+    private static final String TAG = "LatexTypesetCache";
+    
+    public static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    
+    private static final LatexTypesetCache INSTANCE = new LatexTypesetCache();
+    
+    // Guards every use of AndroidMath fonts: typesetting here, drawing in TypesetLatex
+    static final Object FONT_LOCK = new Object();
+    
+    private final LinkedHashMap<String, TypesetLatex> entries = new LinkedHashMap<>(64, 0.75f, true);
+    
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long currentBytes = 0;
+    
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long typesetCount = 0;
+    
+    private boolean fontContextSet = false;
+    
+    private LatexTypesetCache() {
+    }
+    
+    @NonNull
+    public static LatexTypesetCache getInstance() {
+        return INSTANCE;
+    }
+    
+    @NonNull
+    static String keyFor(@NonNull String normalizedLatex, float fontSize, float density) {
+        return fontSize + "|" + density + "|" + normalizedLatex;
+    }
+    
+    /**
+     * Returns the typeset result for the given key, typesetting on a miss.
+     * Safe to call from any thread.
+     */
+    @NonNull
+    public TypesetLatex get(@NonNull Context context, @NonNull String latex, float fontSize, float density) {
+        ParsedLatex parsed = LatexParseCache.getInstance().get(latex);
+        String key = keyFor(parsed.getLatex(), fontSize, density);
+        
+        synchronized (this) {
+            TypesetLatex cached = entries.get(key);
+            if (cached != null) {
+                hitCount++;
+                return cached;
+            }
+            missCount++;
+        }
+        
+        TypesetLatex typeset = typeset(context, parsed, fontSize, density);
+        
+        synchronized (this) {
+            if (!typeset.hasError()) {
+                typesetCount++;
+            }
+            TypesetLatex existing = entries.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            entries.put(key, typeset);
+            currentBytes += typeset.getEstimatedBytes();
+            trimToSize(maxBytes);
+        }
+        return typeset;
+    }
+    
+    /**
+     * Returns the cached typeset result without parsing or typesetting, or null on a miss.
+     * Cheap enough for the main thread. Only hits are counted: callers follow a miss
+     * with {@link #get}, directly or through the render scheduler, which counts it.
+     */
+    @Nullable
+    public TypesetLatex peek(@NonNull String latex, float fontSize, float density) {
+        String key = keyFor(LatexParseCache.normalize(latex), fontSize, density);
+        synchronized (this) {
+            TypesetLatex cached = entries.get(key);
+            if (cached != null) {
+                hitCount++;
+            }
+            return cached;
+        }
+    }
+    
+    /**
+     * Whether the key is cached, without touching the counters or the LRU order.
+     * For probes that only decide whether to queue work, such as prefetching.
+     */
+    public boolean contains(@NonNull String latex, float fontSize, float density) {
+        String key = keyFor(LatexParseCache.normalize(latex), fontSize, density);
+        synchronized (this) {
+            return entries.containsKey(key);
+        }
+    }
+    
+    /**
+     * Typesets a private, uncached display list. Use this when drawing off the main
+     * thread: cached display lists are shared and only ever drawn on the main thread.
+     * Only the display list is private; it still draws with the shared font, which
+     * {@link TypesetLatex#draw} guards with {@link #FONT_LOCK}.
+     */
+    @NonNull
+    public TypesetLatex typesetUnshared(@NonNull Context context, @NonNull String latex, float fontSize, float density) {
+        ParsedLatex parsed = LatexParseCache.getInstance().get(latex);
+        TypesetLatex typeset = typeset(context, parsed, fontSize, density);
+        if (!typeset.hasError()) {
+            synchronized (this) {
+                typesetCount++;
+            }
+        }
+        return typeset;
+    }
+    
+    /** Updates the memory budget, evicting entries immediately if needed. */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(1, maxBytes);
+        trimToSize(this.maxBytes);
+    }
+    
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+    
+    public synchronized void clear() {
+        evictionCount += entries.size();
+        entries.clear();
+        currentBytes = 0;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    public synchronized long sizeBytes() {
+        return currentBytes;
+    }
+    
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+    
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+    
+    /**
+     * Number of successful typesets performed; stays flat across a theme change.
+     * Parse and typeset failures are not counted.
+     */
+    public synchronized long getTypesetCount() {
+        return typesetCount;
+    }
+    
+    /**
+     * Evicts least recently used entries until the cache holds at most targetBytes.
+     * The budget itself is unchanged.
+     */
+    public synchronized void trimToSize(long targetBytes) {
+        Iterator<Map.Entry<String, TypesetLatex>> iterator = entries.entrySet().iterator();
+        while (currentBytes > targetBytes && iterator.hasNext()) {
+            TypesetLatex evicted = iterator.next().getValue();
+            iterator.remove();
+            currentBytes -= evicted.getEstimatedBytes();
+            evictionCount++;
+        }
+    }
+    
+    @NonNull
+    private TypesetLatex typeset(@NonNull Context context, @NonNull ParsedLatex parsed, float fontSize, float density) {
+        if (parsed.hasError()) {
+            // Error entries are cached like any other, so views log this once per key
+            Log.w(TAG, "Invalid latex: " + parsed.getError());
+            return new TypesetLatex(parsed, null, fontSize, density);
+        }
+        synchronized (FONT_LOCK) {
+            if (!fontContextSet) {
+                MTFontManager.Companion.setContext(context.getApplicationContext());
+                fontContextSet = true;
+            }
+            try {
+                MTFont font = MTFontManager.Companion.latinModernFontWithSize(fontSize);
+                if (font == null) {
+                    Log.e(TAG, "Math font unavailable");
+                    return new TypesetLatex(parsed, null, "Math font unavailable", fontSize, density);
+                }
+                long start = LatexMetrics.now();
+                MTMathListDisplay display = MTTypesetter.Companion.createLineForMathList(
+                    parsed.getMathList(), font, MTLineStyle.KMTLineStyleDisplay);
+                LatexMetrics.record(LatexMetrics.Phase.TYPESET, start);
+                TypesetLatex typeset = new TypesetLatex(parsed, display, fontSize, density);
+                LatexDiskCache.getInstance(context).writeLayoutAsync(parsed.getLatex(), fontSize, density,
+                    typeset.getWidth(), typeset.getAscent(), typeset.getDescent());
+                return typeset;
+            } catch (Exception e) {
+                Log.e(TAG, "Error typesetting latex: " + parsed.getLatex(), e);
+                return new TypesetLatex(parsed, null, e.getMessage(), fontSize, density);
+            }
+        }
+    }
+}
@@ -1,35 +1,45 @@
 package com.latexrenderer.latex;
 
+import android.content.Context;
 import android.graphics.Color;
-import android.util.Log;
-import android.view.View;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import com.agog.mathdisplay.MTMathView;
 import com.facebook.react.bridge.ReadableMap;
 import com.facebook.react.uimanager.LayoutShadowNode;
+import com.facebook.react.uimanager.PixelUtil;
 import com.facebook.react.uimanager.SimpleViewManager;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.ViewManagerDelegate;
 import com.facebook.react.uimanager.annotations.ReactProp;
-import com.facebook.yoga.YogaMeasureFunction;
+import com.facebook.react.viewmanagers.NativeLatexViewManagerDelegate;
+import com.facebook.react.viewmanagers.NativeLatexViewManagerInterface;
 import com.facebook.yoga.YogaMeasureMode;
 import com.facebook.yoga.YogaMeasureOutput;
-import com.facebook.yoga.YogaNode;
 
 /**
- * LatexViewManager - React Native ViewManager for MTMathView.
+ * LatexViewManager - React Native ViewManager for NativeLatexView.
  * 
- * This exposes the AndroidMath MTMathView directly to React Native
- * with proper measurement for Yoga layout system.
+ * This exposes AndroidMath rendering to React Native with proper measurement
+ * for the Yoga layout system:
+ * - Fabric: codegen delegate for props and {@link #measure} for synchronous sizing
+ * - Paper: @ReactProp setters and {@link LatexShadowNode}
+ * - Views come from {@link LatexViewPool} and are returned to it when dropped
  */
-public class LatexViewManager extends SimpleViewManager<NativeLatexView> {
+public class LatexViewManager extends SimpleViewManager<NativeLatexView>
+        implements NativeLatexViewManagerInterface<NativeLatexView> {
     
-    private static final String TAG = "LatexViewManager";
     public static final String REACT_CLASS = "NativeLatexView";
     
+    private final ViewManagerDelegate<NativeLatexView> delegate = new NativeLatexViewManagerDelegate<>(this);
+    
+    @Nullable
+    @Override
+    protected ViewManagerDelegate<NativeLatexView> getDelegate() {
+        return delegate;
+    }
+    
     @NonNull
     @Override
     public String getName() {
@@ -39,26 +49,36 @@ public class LatexViewManager extends SimpleViewManager<NativeLatexView> {
     @NonNull
     @Override
     protected NativeLatexView createViewInstance(@NonNull ThemedReactContext reactContext) {
-        Log.d(TAG, "Creating NativeLatexView instance");
-        NativeLatexView view = new NativeLatexView(reactContext);
-        return view;
+        return LatexViewPool.getInstance().acquire(reactContext);
+    }
+    
+    @NonNull
+    @Override
+    public LatexShadowNode createShadowNodeInstance() {
+        return new LatexShadowNode();
     }
     
+    @NonNull
+    @Override
+    public Class<? extends LayoutShadowNode> getShadowNodeClass() {
+        return LatexShadowNode.class;
+    }
+    
+    @Override
     @ReactProp(name = "latex")
     public void setLatex(NativeLatexView view, @Nullable String latex) {
-        Log.d(TAG, "setLatex: " + latex);
         view.setLatex(latex);
     }
     
+    @Override
     @ReactProp(name = "fontSize", defaultFloat = 20f)
     public void setFontSize(NativeLatexView view, float fontSize) {
-        Log.d(TAG, "setFontSize: " + fontSize);
         view.setFontSize(fontSize);
     }
     
+    @Override
     @ReactProp(name = "textColor")
     public void setTextColor(NativeLatexView view, @Nullable String color) {
-        Log.d(TAG, "setTextColor: " + color);
         if (color != null && !color.isEmpty()) {
             try {
                 int parsedColor = Color.parseColor(color);
@@ -71,10 +91,50 @@ public class LatexViewManager extends SimpleViewManager<NativeLatexView> {
         }
     }
     
+    @Override
+    @ReactProp(name = "renderAsync", defaultBoolean = false)
+    public void setRenderAsync(NativeLatexView view, boolean renderAsync) {
+        view.setRenderAsync(renderAsync);
+    }
+    
+    @Override
+    @ReactProp(name = "renderMode")
+    public void setRenderMode(NativeLatexView view, @Nullable String renderMode) {
+        view.setRenderMode(renderMode);
+    }
+    
+    @Override
+    public void onDropViewInstance(@NonNull NativeLatexView view) {
+        super.onDropViewInstance(view);
+        view.release();
+        // Clear the base view props (transform, opacity, tags...) before pooling
+        if (view.getContext() instanceof ThemedReactContext
+                && prepareToRecycleView((ThemedReactContext) view.getContext(), view) != null) {
+            LatexViewPool.getInstance().recycle(view);
+        }
+    }
+    
+    /**
+     * Fabric measurement, called synchronously from the C++ NativeLatexViewShadowNode.
+     * Constraints arrive in pixels and the result is returned in DIPs.
+     */
+    @Override
+    public long measure(Context context, ReadableMap localData, ReadableMap props, ReadableMap state,
+                        float width, YogaMeasureMode widthMode, float height, YogaMeasureMode heightMode,
+                        @Nullable float[] attachmentsPositions) {
+        String latex = props != null && props.hasKey("latex") ? props.getString("latex") : null;
+        float fontSize = props != null && props.hasKey("fontSize") ? (float) props.getDouble("fontSize") : 20f;
+        long size = LatexMeasurer.measure(context, latex, fontSize, width, widthMode, height, heightMode);
+        return YogaMeasureOutput.make(
+            PixelUtil.toDIPFromPixel(YogaMeasureOutput.getWidth(size)),
+            PixelUtil.toDIPFromPixel(YogaMeasureOutput.getHeight(size))
+        );
+    }
+    
     @Override
     public void onAfterUpdateTransaction(@NonNull NativeLatexView view) {
         super.onAfterUpdateTransaction(view);
-        // Force the view to re-measure after props are updated
-        view.requestLayout();
+        // Setters only record changes; apply them together with at most one typeset
+        view.commitProps();
     }
 }
@@ -0,0 +1,190 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.uimanager.ThemedReactContext;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+
+/**
+ * LatexViewPool - Bounded pool of ready-made NativeLatexView instances.
+ *
+ * FlatList mount bursts create views exactly when the main thread is busiest.
+ * The pool moves that cost out of the burst:
+ * - After the first view is created for a surface, an IdleHandler pre-constructs
+ *   views one per idle pass until the pool holds {@link #PREWARM_COUNT}
+ * - Views dropped by React are reset and returned, up to {@link #MAX_POOL_SIZE}
+ * - Views belong to one ThemedReactContext (events need its surface id), so the
+ *   pool is flushed when views are requested for a different context
+ * - Pooled views hold their context, and through it the Activity, so the pool is
+ *   drained when that context's host is destroyed
+ *
+ * Hits, misses and construction time are tracked, and each acquire is recorded
+ * in {@link LatexTrace}. Main thread only.
+ */
+public final class LatexViewPool {
+    
+    public static final int MAX_POOL_SIZE = 16;
+    public static final int PREWARM_COUNT = 8;
+    
+    private static final LatexViewPool INSTANCE = new LatexViewPool();
+    
+    private final ArrayDeque<NativeLatexView> views = new ArrayDeque<>();
+    private WeakReference<ThemedReactContext> poolContext = new WeakReference<>(null);
+    private MessageQueue.IdleHandler prewarmHandler = null;
+    
+    // Drains the pool when the bound context's host goes away
+    private final LifecycleEventListener lifecycleListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {
+        }
+        
+        @Override
+        public void onHostPause() {
+        }
+        
+        @Override
+        public void onHostDestroy() {
+            invalidate();
+        }
+    };
+    
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long constructedCount = 0;
+    private long constructionNanos = 0;
+    
+    private LatexViewPool() {
+    }
+    
+    @NonNull
+    public static LatexViewPool getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Returns a pooled view for the context, or constructs one, and schedules
+     * pre-warming for the views that will follow.
+     */
+    @MainThread
+    @NonNull
+    public NativeLatexView acquire(@NonNull ThemedReactContext context) {
+        bindContext(context);
+        NativeLatexView view;
+        while ((view = views.pollFirst()) != null && view.getContext() != context) {
+            view.release();
+        }
+        boolean hit = view != null;
+        if (hit) {
+            hitCount++;
+        } else {
+            missCount++;
+            view = construct(context);
+        }
+        LatexTrace.event(LatexTrace.POOL_ACQUIRE, 0, hit ? 1 : 0, views.size());
+        schedulePrewarm();
+        return view;
+    }
+    
+    /**
+     * Resets a view React has dropped and keeps it for reuse if there is room.
+     */
+    @MainThread
+    public void recycle(@NonNull NativeLatexView view) {
+        if (view.getContext() != poolContext.get() || view.getParent() != null || views.size() >= MAX_POOL_SIZE) {
+            return;
+        }
+        view.resetForReuse();
+        views.addLast(view);
+    }
+    
+    /** Drops all pooled views, e.g. under memory pressure. */
+    @MainThread
+    public void clear() {
+        NativeLatexView view;
+        while ((view = views.pollFirst()) != null) {
+            view.release();
+        }
+    }
+    
+    /**
+     * Drains the pool and forgets its context, so no pooled view keeps a destroyed
+     * Activity alive. Called when the bound context's host is destroyed.
+     */
+    @MainThread
+    public void invalidate() {
+        clear();
+        ThemedReactContext context = poolContext.get();
+        if (context != null) {
+            context.removeLifecycleEventListener(lifecycleListener);
+        }
+        poolContext = new WeakReference<>(null);
+    }
+    
+    @MainThread
+    public int size() {
+        return views.size();
+    }
+    
+    @MainThread
+    public double getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+    
+    @MainThread
+    public long getHitCount() {
+        return hitCount;
+    }
+    
+    @MainThread
+    public long getMissCount() {
+        return missCount;
+    }
+    
+    @MainThread
+    public long getAverageConstructionMicros() {
+        return constructedCount == 0 ? 0 : constructionNanos / constructedCount / 1000;
+    }
+    
+    private void bindContext(ThemedReactContext context) {
+        if (poolContext.get() != context) {
+            invalidate();
+            poolContext = new WeakReference<>(context);
+            context.addLifecycleEventListener(lifecycleListener);
+        }
+    }
+    
+    private NativeLatexView construct(Context context) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        NativeLatexView view = new NativeLatexView(context);
+        constructionNanos += SystemClock.elapsedRealtimeNanos() - start;
+        constructedCount++;
+        return view;
+    }
+    
+    private void schedulePrewarm() {
+        if (prewarmHandler != null || views.size() >= PREWARM_COUNT) {
+            return;
+        }
+        // One view per idle pass, so input and frames are never held up for long
+        prewarmHandler = () -> {
+            Context context = poolContext.get();
+            if (context == null || views.size() >= PREWARM_COUNT) {
+                prewarmHandler = null;
+                return false;
+            }
+            views.addLast(construct(context));
+            return true;
+        };
+        Looper.myQueue().addIdleHandler(prewarmHandler);
+    }
+}
@@ -0,0 +1,255 @@
+package com.latexrenderer.latex;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.text.TextPaint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * NativeLatexParagraphView - A single View rendering a paragraph of text with
+ * inline $...$ and display $$...$$ math.
+ *
+ * Replaces the per-fragment Text + NativeLatexView trees built in JS:
+ * - The raw paragraph is tokenized natively by {@link LatexTokenizer}
+ * - Text and math are laid out together by {@link LatexParagraphLayout}, with
+ *   line wrapping and inline math sharing the text baseline
+ * - Math display lists come from {@link LatexTypesetCache}, shared with every
+ *   other LaTeX view. Layouts are built from cached equations only, in measure
+ *   too; missing ones are placeholder boxes, typeset on {@link LatexRenderScheduler},
+ *   and the layout is rebuilt when the last one arrives
+ * - The layout is rebuilt at the current frame width as soon as props commit,
+ *   since Fabric does not re-layout a view whose frame size is unchanged
+ *
+ * Like NativeLatexView, prop setters only record changes and
+ * {@link #commitProps()} applies them once per React transaction.
+ */
+public class NativeLatexParagraphView extends View implements LatexRenderScheduler.Callback {
+    
+    private static final int DIRTY_CONTENT = 1;
+    private static final int DIRTY_COLOR = 1 << 1;
+    
+    private String text = "";
+    private float fontSize = 16f;
+    private float mathFontSize = 20f;
+    private float displayMathFontSize = 0f;
+    private int textColor = Color.BLACK;
+    private int dirtyFlags = 0;
+    
+    private List<LatexTokenizer.Token> tokens = Collections.emptyList();
+    private TextPaint paint;
+    private LatexParagraphLayout layout;
+    private float layoutMaxWidth = -1;
+    // When the current content was committed, until it is first drawn
+    private long contentChangedAt = 0;
+    // Background typesets the current layout's placeholders are waiting for
+    private final List<LatexRenderScheduler.Request> pendingRequests = new ArrayList<>();
+    
+    public NativeLatexParagraphView(Context context) {
+        super(context);
+    }
+    
+    public NativeLatexParagraphView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+    
+    public NativeLatexParagraphView(Context context, AttributeSet attrs, int defStyleAttr) {
+        super(context, attrs, defStyleAttr);
+    }
+    
+    public void setText(String text) {
+        String value = text != null ? text : "";
+        if (!value.equals(this.text)) {
+            this.text = value;
+            dirtyFlags |= DIRTY_CONTENT;
+        }
+    }
+    
+    public void setFontSize(float fontSize) {
+        if (fontSize != this.fontSize) {
+            this.fontSize = fontSize;
+            dirtyFlags |= DIRTY_CONTENT;
+        }
+    }
+    
+    public void setMathFontSize(float mathFontSize) {
+        if (mathFontSize != this.mathFontSize) {
+            this.mathFontSize = mathFontSize;
+            dirtyFlags |= DIRTY_CONTENT;
+        }
+    }
+    
+    public void setDisplayMathFontSize(float displayMathFontSize) {
+        if (displayMathFontSize != this.displayMathFontSize) {
+            this.displayMathFontSize = displayMathFontSize;
+            dirtyFlags |= DIRTY_CONTENT;
+        }
+    }
+    
+    public void setTextColor(int color) {
+        if (color != this.textColor) {
+            this.textColor = color;
+            dirtyFlags |= DIRTY_COLOR;
+        }
+    }
+    
+    /**
+     * Applies the props recorded since the last commit. Only content changes
+     * re-layout; a color change just redraws.
+     */
+    public void commitProps() {
+        int flags = dirtyFlags;
+        dirtyFlags = 0;
+        if ((flags & DIRTY_CONTENT) != 0) {
+            contentChangedAt = LatexMetrics.now();
+            cancelPendingRequests();
+            tokens = LatexTokenizer.tokenize(text);
+            paint = LatexParagraphLayout.createTextPaint(getContext(), fontSize);
+            layout = null;
+            requestLayout();
+            ensureLayout();
+        }
+        if (flags != 0) {
+            invalidate();
+        }
+    }
+    
+    /** Cancels outstanding typesets; called when the view is dropped. */
+    public void release() {
+        cancelPendingRequests();
+    }
+    
+    /**
+     * Builds the layout at the current frame width unless it is already built for it.
+     */
+    private void ensureLayout() {
+        if (getWidth() == 0) {
+            return;
+        }
+        float maxWidth = Math.max(0, getWidth() - getPaddingLeft() - getPaddingRight());
+        if (layout != null && layoutMaxWidth == maxWidth) {
+            return;
+        }
+        obtainLayout(maxWidth);
+        invalidate();
+    }
+    
+    /** Queues the equations the layout is missing, unless they are already queued. */
+    private void submitMissingMath(LatexParagraphLayout built) {
+        List<LatexTokenizer.Token> missing = built.getMissingMath();
+        if (missing.isEmpty()) {
+            return;
+        }
+        float density = getResources().getDisplayMetrics().density;
+        LatexRenderScheduler.Priority priority = isAttachedToWindow()
+            ? LatexRenderScheduler.Priority.VISIBLE
+            : LatexRenderScheduler.Priority.OFFSCREEN;
+        for (LatexTokenizer.Token token : missing) {
+            float size = LatexParagraphLayout.mathFontSizePx(getContext(), token, mathFontSize, displayMathFontSize);
+            if (!isPending(token.content, size)) {
+                pendingRequests.add(LatexRenderScheduler.getInstance().submit(
+                    getContext(), token.content, size, density, priority, this));
+            }
+        }
+    }
+    
+    private boolean isPending(String latex, float size) {
+        for (LatexRenderScheduler.Request request : pendingRequests) {
+            if (request.getFontSize() == size && request.getLatex().equals(latex)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private void cancelPendingRequests() {
+        for (LatexRenderScheduler.Request request : pendingRequests) {
+            LatexRenderScheduler.getInstance().cancel(request);
+        }
+        pendingRequests.clear();
+    }
+    
+    @Override
+    public void onTypesetReady(@NonNull LatexRenderScheduler.Request request, @NonNull TypesetLatex typeset) {
+        onRequestFinished(request);
+    }
+    
+    @Override
+    public void onRenderDropped(@NonNull LatexRenderScheduler.Request request) {
+        // The background queue overflowed; typeset here rather than never
+        if (pendingRequests.contains(request)) {
+            LatexTypesetCache.getInstance().get(getContext(), request.getLatex(), request.getFontSize(),
+                getResources().getDisplayMetrics().density);
+        }
+        onRequestFinished(request);
+    }
+    
+    /** Rebuilds once every placeholder can be filled, rather than once per equation. */
+    private void onRequestFinished(LatexRenderScheduler.Request request) {
+        if (pendingRequests.remove(request) && pendingRequests.isEmpty()) {
+            layout = null;
+            ensureLayout();
+        }
+    }
+    
+    private LatexParagraphLayout obtainLayout(float maxWidth) {
+        if (paint == null) {
+            paint = LatexParagraphLayout.createTextPaint(getContext(), fontSize);
+        }
+        if (layout == null || layoutMaxWidth != maxWidth) {
+            // Never typesets on the main thread, whatever width measure asks for
+            layout = LatexParagraphLayout.buildCached(
+                getContext(), tokens, paint, mathFontSize, displayMathFontSize, maxWidth);
+            layoutMaxWidth = maxWidth;
+            submitMissingMath(layout);
+        }
+        return layout;
+    }
+    
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int widthMode = MeasureSpec.getMode(widthMeasureSpec);
+        int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        float maxWidth = widthMode == MeasureSpec.UNSPECIFIED
+            ? Float.POSITIVE_INFINITY
+            : Math.max(0, MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding);
+        
+        LatexParagraphLayout paragraph = obtainLayout(maxWidth);
+        setMeasuredDimension(
+            resolveSize(paragraph.getPixelWidth() + horizontalPadding, widthMeasureSpec),
+            resolveSize(paragraph.getPixelHeight() + getPaddingTop() + getPaddingBottom(), heightMeasureSpec)
+        );
+    }
+    
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        // React Native sets the frame directly, so make sure the layout matches it
+        ensureLayout();
+    }
+    
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (layout == null) {
+            ensureLayout();
+        }
+        if (layout == null || tokens.isEmpty()) {
+            return;
+        }
+        long start = LatexMetrics.now();
+        layout.draw(canvas, getPaddingLeft(), getPaddingTop(), paint, textColor);
+        LatexMetrics.record(LatexMetrics.Phase.DRAW, start);
+        if (contentChangedAt != 0) {
+            LatexMetrics.record(LatexMetrics.Phase.PROP_TO_PIXEL, contentChangedAt);
+            contentChangedAt = 0;
+        }
+    }
+}
@@ -1,140 +1,119 @@
 package com.latexrenderer.latex;
 
 import android.content.Context;
+import android.graphics.Canvas;
 import android.graphics.Color;
-import android.os.Handler;
-import android.os.Looper;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.text.StaticLayout;
+import android.text.TextPaint;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
 import android.view.View;
-import android.widget.FrameLayout;
-import android.widget.HorizontalScrollView;
-import android.widget.TextView;
-
-import com.agog.mathdisplay.MTMathView;
+import android.widget.OverScroller;
 
 /**
  * NativeLatexView - Custom Android View for rendering LaTeX equations.
- * 
- * This view wraps MTMathView from AndroidMath library and provides:
+ *
+ * This is a single flat view that draws AndroidMath display lists and provides:
  * - Direct native LaTeX rendering (no WebView)
- * - Error handling for invalid LaTeX (displays red error text)
- * - Horizontal scrolling for long equations
- * - Responsive layout with proper measurement
+ * - Parsed math lists shared across views through {@link LatexParseCache}
+ * - Typeset display lists shared across views through {@link LatexTypesetCache}
+ * - Optional asynchronous parse/typeset on {@link LatexRenderScheduler}, prioritized
+ *   by whether the view is on screen
+ * - Typeset state kept across detach/re-attach, with no re-render on re-attach
+ * - Error handling for invalid LaTeX (error box created lazily on first error)
+ * - Horizontal scrolling, only when the equation overflows its width
+ * - Main thread typesetting, display list swaps and rasterization time-sliced
+ *   through {@link LatexFrameScheduler}, so a mounting batch cannot blow the frame
+ * - Optional bitmap mode drawing rasters from {@link LatexBitmapCache}, loaded
+ *   from {@link LatexDiskCache} off the main thread without typesetting on a warm launch
+ * - Color applied at draw time in both modes, so a theme flip only invalidates
+ * - Exact sizing from {@link LatexShadowNode} on the first layout pass
+ *
+ * Instances are pooled and pre-constructed by {@link LatexViewPool}.
+ *
+ * Prop setters only record what changed; {@link #commitProps()} applies them once
+ * per React transaction, so a latex + fontSize + color update typesets at most once.
  */
-public class NativeLatexView extends FrameLayout {
+public class NativeLatexView extends View implements LatexRenderScheduler.Callback {
     
-    private static final String TAG = "NativeLatexView";
+    private static final int ERROR_TEXT_COLOR = Color.parseColor("#856404");
+    private static final int ERROR_BACKGROUND_COLOR = Color.parseColor("#FFF3CD");
+    private static final int ERROR_BORDER_COLOR = Color.parseColor("#FFECB5");
     
-    private final Handler handler = new Handler(Looper.getMainLooper());
+    // Error backgrounds share one constant state, rebuilt only if the density changes
+    private static Drawable.ConstantState errorBackgroundState;
+    private static float errorBackgroundDensity;
     
-    private HorizontalScrollView scrollView;
+    private static final Paint BITMAP_PAINT = new Paint(Paint.FILTER_BITMAP_FLAG);
     
-    private MTMathView mathView;
+    // Changes recorded by the prop setters, applied in commitProps()
+    private static final int DIRTY_CONTENT = 1;
+    private static final int DIRTY_COLOR = 1 << 1;
+    private static final int DIRTY_MODE = 1 << 2;
     
-    private TextView errorView;
+    private TypesetLatex typeset;
     
     private String latexString = "";
+    private String latexProp = "";
+    private int dirtyFlags = 0;
     private float fontSize = 20f;
     private int textColor = Color.BLACK;
     private boolean hasError = false;
     private boolean isAttached = false;
     private String pendingLatex = null;
+    private boolean renderAsync = false;
+    private LatexRenderScheduler.Request pendingRequest = null;
+    private Runnable pendingInstall = null;
+    private Runnable pendingRaster = null;
+    private boolean bitmapMode = false;
+    private LatexBitmapCache.Entry bitmapEntry = null;
+    private Paint tintPaint = null;
+    private Rect visibleRect = null;
+    // When the current content was committed, until it is first drawn
+    private long contentChangedAt = 0;
+    private int tintColor;
+    
+    // Created lazily: most equations fit on screen and never error
+    private String errorMessage;
+    private TextPaint errorPaint;
+    private StaticLayout errorLayout;
+    private Drawable errorBackground;
+    private OverScroller scroller;
+    private GestureDetector gestureDetector;
     
     public NativeLatexView(Context context) {
         super(context);
-        init(context);
     }
     
     public NativeLatexView(Context context, AttributeSet attrs) {
         super(context, attrs);
-        init(context);
     }
     
     public NativeLatexView(Context context, AttributeSet attrs, int defStyleAttr) {
         super(context, attrs, defStyleAttr);
-        init(context);
-    }
-    
-    private void init(Context context) {
-        Log.d(TAG, "Initializing NativeLatexView");
-        
-        scrollView = new HorizontalScrollView(context);
-        scrollView.setHorizontalScrollBarEnabled(true);
-        scrollView.setFillViewport(false);
-        FrameLayout.LayoutParams scrollParams = new FrameLayout.LayoutParams(
-            LayoutParams.MATCH_PARENT,
-            LayoutParams.WRAP_CONTENT
-        );
-        scrollView.setLayoutParams(scrollParams);
-        
-        scrollView.setOnTouchListener((v, event) -> {
-            int action = event.getAction();
-            if (action == android.view.MotionEvent.ACTION_DOWN || 
-                action == android.view.MotionEvent.ACTION_MOVE) {
-                v.getParent().requestDisallowInterceptTouchEvent(true);
-            } else if (action == android.view.MotionEvent.ACTION_UP || 
-                       action == android.view.MotionEvent.ACTION_CANCEL) {
-                v.getParent().requestDisallowInterceptTouchEvent(false);
-            }
-            return false;
-        });
-        
-        mathView = new MTMathView(context);
-        HorizontalScrollView.LayoutParams mathParams = new HorizontalScrollView.LayoutParams(
-            LayoutParams.WRAP_CONTENT,
-            LayoutParams.WRAP_CONTENT
-        );
-        mathView.setLayoutParams(mathParams);
-        mathView.setFontSize(fontSize);
-        
-        scrollView.addView(mathView);
-        addView(scrollView);
-        
-        errorView = new TextView(context);
-        errorView.setTextColor(Color.parseColor("#856404"));
-        errorView.setTextSize(14f);
-        errorView.setVisibility(GONE);
-        
-        android.graphics.drawable.GradientDrawable background = new android.graphics.drawable.GradientDrawable();
-        background.setColor(Color.parseColor("#FFF3CD"));
-        background.setCornerRadius(dpToPx(8));
-        background.setStroke(dpToPx(1), Color.parseColor("#FFECB5"));
-        errorView.setBackground(background);
-        
-        int padding = dpToPx(12);
-        errorView.setPadding(padding, padding, padding, padding);
-        
-        errorView.setLayoutParams(new FrameLayout.LayoutParams(
-            LayoutParams.WRAP_CONTENT,
-            LayoutParams.WRAP_CONTENT
-        ));
-        addView(errorView);
     }
     
     @Override
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
         isAttached = true;
-        Log.d(TAG, "onAttachedToWindow, pendingLatex: " + pendingLatex + ", latexString: " + latexString);
+        LatexTrace.event(LatexTrace.ATTACH, getId(), pendingLatex != null ? 1 : 0, pendingRequest != null ? 1 : 0);
         
-        if (pendingLatex != null && !pendingLatex.isEmpty()) {
+        // Render queued latex in this frame. Content rendered before a detach is kept,
+        // so re-attaching (e.g. removeClippedSubviews while scrolling) does no work.
+        if (pendingLatex != null) {
             final String latex = pendingLatex;
             pendingLatex = null;
-            // Use postDelayed to ensure the view hierarchy is fully ready
-            handler.postDelayed(() -> {
-                Log.d(TAG, "Rendering pending latex: " + latex);
-                this.latexString = ""; // Clear to force re-render
-                renderLatex(latex);
-            }, 100);
-        } else if (!latexString.isEmpty()) {
-            // Re-render existing latex when view is re-attached
-            final String latex = latexString;
-            handler.postDelayed(() -> {
-                Log.d(TAG, "Re-rendering existing latex: " + latex);
-                this.latexString = ""; // Clear to force re-render
-                renderLatex(latex);
-            }, 100);
+            renderLatex(latex);
+        } else if (pendingRequest != null) {
+            LatexRenderScheduler.getInstance().reprioritize(pendingRequest, currentPriority());
         }
     }
     
@@ -142,241 +121,568 @@ public class NativeLatexView extends FrameLayout {
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         isAttached = false;
-        Log.d(TAG, "onDetachedFromWindow");
+        LatexTrace.event(LatexTrace.DETACH, getId(), 0, pendingRequest != null ? 1 : 0);
+        
+        if (scroller != null) {
+            scroller.forceFinished(true);
+        }
+        
+        // Keep background work but let on-screen views go first. If this view is
+        // recycled for another equation, renderLatex() cancels the request.
+        if (pendingRequest != null) {
+            LatexRenderScheduler.getInstance().reprioritize(pendingRequest, LatexRenderScheduler.Priority.OFFSCREEN);
+        }
+    }
+    
+    private LatexRenderScheduler.Priority currentPriority() {
+        if (!isAttached) {
+            return LatexRenderScheduler.Priority.OFFSCREEN;
+        }
+        // Not laid out yet: assume the view is being mounted near the viewport
+        if (getWidth() == 0 && getHeight() == 0) {
+            return LatexRenderScheduler.Priority.VISIBLE;
+        }
+        if (visibleRect == null) {
+            visibleRect = new Rect();
+        }
+        return getLocalVisibleRect(visibleRect)
+            ? LatexRenderScheduler.Priority.VISIBLE
+            : LatexRenderScheduler.Priority.OFFSCREEN;
+    }
+    
+    public void setRenderAsync(boolean renderAsync) {
+        this.renderAsync = renderAsync;
+    }
+    
+    public void setRenderMode(String renderMode) {
+        boolean bitmap = "bitmap".equals(renderMode);
+        if (bitmap != bitmapMode) {
+            bitmapMode = bitmap;
+            dirtyFlags |= DIRTY_MODE;
+        }
+    }
+    
+    /**
+     * Releases shared resources held by this view. Called when React drops it.
+     */
+    public void release() {
+        cancelPendingRender();
+        if (pendingRaster != null) {
+            LatexFrameScheduler.getInstance().cancel(pendingRaster);
+            pendingRaster = null;
+        }
+        releaseBitmap();
+    }
+    
+    /**
+     * Returns the view to its freshly constructed state so {@link LatexViewPool} can
+     * hand it out again. Lazily created objects (paints, scroller) are kept.
+     */
+    public void resetForReuse() {
+        release();
+        typeset = null;
+        latexString = "";
+        latexProp = "";
+        dirtyFlags = 0;
+        fontSize = 20f;
+        textColor = Color.BLACK;
+        hasError = false;
+        pendingLatex = null;
+        renderAsync = false;
+        bitmapMode = false;
+        contentChangedAt = 0;
+        errorMessage = null;
+        errorLayout = null;
+        if (scroller != null) {
+            scroller.forceFinished(true);
+        }
+        scrollTo(0, 0);
+    }
+    
+    private void releaseBitmap() {
+        if (bitmapEntry != null) {
+            LatexBitmapCache.getInstance().release(bitmapEntry);
+            bitmapEntry = null;
+        }
     }
     
     public void setLatex(String latex) {
         if (latex == null) {
             latex = "";
         }
+        LatexTrace.event(LatexTrace.SET_LATEX, getId(), latex.length(), isAttached ? 1 : 0);
+        if (!latex.equals(latexProp)) {
+            latexProp = latex;
+            dirtyFlags |= DIRTY_CONTENT;
+        }
+    }
+    
+    public void setFontSize(float size) {
+        LatexTrace.event(LatexTrace.SET_FONT_SIZE, getId(), Math.round(size), 0);
+        if (size != this.fontSize) {
+            this.fontSize = size;
+            dirtyFlags |= DIRTY_CONTENT;
+        }
+    }
+    
+    public void setTextColor(int color) {
+        LatexTrace.event(LatexTrace.SET_TEXT_COLOR, getId(), color, 0);
+        // Color is applied at draw time, the cached display list stays valid
+        if (color != this.textColor) {
+            this.textColor = color;
+            dirtyFlags |= DIRTY_COLOR;
+        }
+    }
+    
+    /**
+     * Applies the props recorded since the last commit: at most one typeset, and a
+     * layout request only if the content size changed. Called once per transaction.
+     */
+    public void commitProps() {
+        int flags = dirtyFlags;
+        dirtyFlags = 0;
+        LatexTrace.event(LatexTrace.COMMIT_PROPS, getId(), flags, 0);
+        if (flags == 0) {
+            return;
+        }
         
-        Log.d(TAG, "setLatex called with: " + latex + ", isAttached: " + isAttached);
+        // Tintable rasters are recolored by the draw-time color filter. Anything else
+        // drawn from a raster needs a new one, and a raster served from disk has no
+        // display list to repaint from.
+        boolean rerender = (flags & DIRTY_CONTENT) != 0;
+        boolean stale = (flags & DIRTY_MODE) != 0
+            || ((flags & DIRTY_COLOR) != 0 && bitmapEntry != null && !bitmapEntry.isTintable());
+        if (stale && bitmapEntry != null) {
+            rerender |= typeset == null;
+            releaseBitmap();
+        }
         
-        if (!isAttached) {
-            Log.d(TAG, "Not attached yet, queuing latex");
-            pendingLatex = latex;
+        if (!rerender) {
+            invalidate();
             return;
         }
-        
-        renderLatex(latex);
+        // Force a render even if only the font size changed
+        latexString = "";
+        contentChangedAt = LatexMetrics.now();
+        if (!isAttached) {
+            LatexTrace.event(LatexTrace.RENDER_DEFERRED, getId(), latexProp.length(), 0);
+            pendingLatex = latexProp;
+        } else {
+            renderLatex(latexProp);
+        }
     }
     
     private void renderLatex(String latex) {
         if (latex == null) {
             latex = "";
         }
-        
-        Log.d(TAG, "renderLatex: " + latex);
-        
+        long start = LatexTrace.begin(LatexTrace.RENDER);
+        renderContent(latex);
+        LatexTrace.end(LatexTrace.RENDER, getId(), start, latex.length(), 0);
+    }
+    
+    private void renderContent(String latex) {
         if (latex.equals(this.latexString) && !latex.isEmpty()) {
-            Log.d(TAG, "Same latex, skipping");
+            LatexTrace.event(LatexTrace.RENDER_SKIPPED, getId(), latex.length(), 0);
             return;
         }
         
         this.latexString = latex;
-        this.hasError = false;
+        cancelPendingRender();
         
         if (latex.isEmpty()) {
-            scrollView.setVisibility(GONE);
-            errorView.setVisibility(GONE);
+            setTypeset(null);
             return;
         }
         
-        final String finalLatex = latex;
-        
-        try {
-            Log.d(TAG, "Rendering latex: " + finalLatex);
-            
-            // Set properties first
-            mathView.setTextColor(textColor);
-            mathView.setFontSize(fontSize);
-            
-            // Set the latex content
-            mathView.setLatex(finalLatex);
-            
-            // Make visible
-            scrollView.setVisibility(VISIBLE);
-            errorView.setVisibility(GONE);
-            
-            Log.d(TAG, "MTMathView getLatex() immediately after set: '" + mathView.getLatex() + "'");
-            
-            // Force measure and layout of mathView
-            int widthSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
-            int heightSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
-            mathView.measure(widthSpec, heightSpec);
-            
-            int mathWidth = mathView.getMeasuredWidth();
-            int mathHeight = mathView.getMeasuredHeight();
-            
-            Log.d(TAG, "MTMathView after measure: " + mathWidth + "x" + mathHeight);
-            
-            // Layout the mathView with the measured dimensions
-            mathView.layout(0, 0, mathWidth, mathHeight);
-            
-            // Force scrollView to layout
-            scrollView.measure(
-                MeasureSpec.makeMeasureSpec(getWidth() > 0 ? getWidth() : mathWidth, MeasureSpec.AT_MOST),
-                MeasureSpec.makeMeasureSpec(mathHeight, MeasureSpec.EXACTLY)
-            );
-            scrollView.layout(0, 0, scrollView.getMeasuredWidth(), mathHeight);
-            
-            // Request layout updates for React Native
-            mathView.requestLayout();
-            mathView.invalidate();
-            scrollView.requestLayout();
-            
-            // This is crucial for React Native - we need to set a minimum height
-            // to force the view to be visible
-            setMinimumHeight(mathHeight);
-            setMinimumWidth(Math.min(mathWidth, getWidth() > 0 ? getWidth() : mathWidth));
-            
-            // Request a new layout pass
-            requestLayout();
-            invalidate();
-            
-            // Use forceLayout to ensure the view is remeasured
-            forceLayout();
-            
-            Log.d(TAG, "After layout - mathView: " + mathView.getWidth() + "x" + mathView.getHeight() + 
-                       ", this view min: " + getMinimumWidth() + "x" + getMinimumHeight());
-            
-        } catch (Exception e) {
-            Log.e(TAG, "Error rendering latex: " + e.getMessage(), e);
-            
-            hasError = true;
-            String errorMsg = "⚠️ LaTeX Error";
-            if (e.getMessage() != null && !e.getMessage().isEmpty()) {
-                errorMsg = "⚠️ Error: " + e.getMessage();
+        if (bitmapMode) {
+            LatexBitmapCache.Entry raster = LatexBitmapCache.getInstance().obtainCached(
+                latex, fontSize, getDensity(), textColor);
+            if (raster != null) {
+                setContent(null, raster);
+                return;
             }
-            
-            errorView.setText(errorMsg);
-            errorView.setVisibility(VISIBLE);
-            scrollView.setVisibility(GONE);
-            
-            errorView.requestLayout();
         }
+        
+        TypesetLatex cached = LatexTypesetCache.getInstance().peek(latex, fontSize, getDensity());
+        if (cached != null) {
+            setTypeset(cached);
+            return;
+        }
+        
+        // The frame is already the exact typeset size measured by Yoga, so an
+        // empty view is a correctly sized placeholder until the result arrives
+        setTypeset(null);
+        // A raster persisted by an earlier launch is read from disk off the main
+        // thread, so bitmap mode always goes through the scheduler on a miss
+        if (renderAsync || bitmapMode) {
+            LatexRenderScheduler scheduler = LatexRenderScheduler.getInstance();
+            LatexRenderScheduler.Priority priority = currentPriority();
+            LatexTrace.event(LatexTrace.RENDER_QUEUED, getId(), latex.length(), priority.ordinal());
+            pendingRequest = bitmapMode
+                ? scheduler.submitRaster(getContext(), latex, fontSize, getDensity(), textColor, priority, this)
+                : scheduler.submit(getContext(), latex, fontSize, getDensity(), priority, this);
+            return;
+        }
+        // Typeset on the main thread, but within a frame budget shared with the
+        // other views of a mounting batch
+        final String requested = latex;
+        scheduleInstall(() -> setTypeset(obtainTypeset(requested)));
     }
     
-    public void setFontSize(float size) {
-        Log.d(TAG, "setFontSize: " + size);
-        this.fontSize = size;
-        if (mathView != null) {
-            mathView.setFontSize(size);
-            // Re-render if we have latex content
-            if (!latexString.isEmpty()) {
-                mathView.setLatex(latexString);
-                mathView.requestLayout();
-                mathView.invalidate();
+    /**
+     * Runs a content swap on {@link LatexFrameScheduler}, replacing any swap still pending.
+     */
+    private void scheduleInstall(Runnable install) {
+        LatexFrameScheduler scheduler = LatexFrameScheduler.getInstance();
+        scheduler.cancel(pendingInstall);
+        pendingInstall = () -> {
+            pendingInstall = null;
+            install.run();
+        };
+        scheduler.post(pendingInstall);
+    }
+    
+    private void scheduleRaster() {
+        if (pendingRaster != null) {
+            return;
+        }
+        pendingRaster = () -> {
+            pendingRaster = null;
+            if (bitmapMode && bitmapEntry == null && typeset != null && !hasError) {
+                bitmapEntry = LatexBitmapCache.getInstance().obtain(getContext(), typeset, textColor);
+                invalidate();
             }
+        };
+        LatexFrameScheduler.getInstance().post(pendingRaster);
+    }
+    
+    @Override
+    public void onTypesetReady(LatexRenderScheduler.Request request, TypesetLatex typeset) {
+        if (request != pendingRequest) {
+            return;
+        }
+        pendingRequest = null;
+        if (!request.getLatex().equals(latexString) || request.getFontSize() != fontSize) {
+            LatexTrace.event(LatexTrace.TYPESET_STALE, getId(), request.getLatex().length(), 0);
+            return;
         }
+        scheduleInstall(() -> setTypeset(typeset));
     }
     
-    public void setTextColor(int color) {
-        Log.d(TAG, "setTextColor: " + color);
-        this.textColor = color;
-        if (mathView != null) {
-            mathView.setTextColor(color);
-            // Re-render if we have latex content
-            if (!latexString.isEmpty()) {
-                mathView.setLatex(latexString);
-                mathView.requestLayout();
-                mathView.invalidate();
+    @Override
+    public void onRasterReady(LatexRenderScheduler.Request request) {
+        if (request != pendingRequest) {
+            return;
+        }
+        pendingRequest = null;
+        if (!request.getLatex().equals(latexString) || request.getFontSize() != fontSize) {
+            LatexTrace.event(LatexTrace.TYPESET_STALE, getId(), request.getLatex().length(), 0);
+            return;
+        }
+        final String requested = latexString;
+        scheduleInstall(() -> {
+            LatexBitmapCache.Entry raster = bitmapMode
+                ? LatexBitmapCache.getInstance().obtainCached(requested, fontSize, getDensity(), textColor)
+                : null;
+            if (raster != null) {
+                setContent(null, raster);
+            } else {
+                // Evicted, or the mode or color changed, since it was loaded
+                setTypeset(obtainTypeset(requested));
             }
+        });
+    }
+    
+    @Override
+    public void onRenderDropped(LatexRenderScheduler.Request request) {
+        if (request != pendingRequest) {
+            return;
+        }
+        // The background queue overflowed; render synchronously rather than never
+        pendingRequest = null;
+        final String requested = latexString;
+        scheduleInstall(() -> setTypeset(obtainTypeset(requested)));
+    }
+    
+    private void cancelPendingRender() {
+        if (pendingRequest != null) {
+            LatexRenderScheduler.getInstance().cancel(pendingRequest);
+            pendingRequest = null;
+        }
+        if (pendingInstall != null) {
+            LatexFrameScheduler.getInstance().cancel(pendingInstall);
+            pendingInstall = null;
+        }
+    }
+    
+    private void setTypeset(TypesetLatex typeset) {
+        setContent(typeset, null);
+    }
+    
+    /**
+     * Swaps in a display list, or a raster with no display list behind it.
+     */
+    private void setContent(TypesetLatex typeset, LatexBitmapCache.Entry raster) {
+        int oldWidth = getContentWidth();
+        int oldHeight = getContentHeight();
+        boolean hadError = hasError;
+        if (typeset != this.typeset || typeset == null) {
+            releaseBitmap();
+        }
+        this.typeset = typeset;
+        if (raster != null) {
+            bitmapEntry = raster;
+        }
+        this.hasError = typeset != null && typeset.hasError();
+        if (hasError) {
+            // Logged once when the error entry was cached; this runs on every bind
+            LatexTrace.event(LatexTrace.RENDER_ERROR, getId(), typeset.getParsed().getLatex().length(), 0);
+            showError(typeset.getError());
+        } else {
+            errorMessage = null;
+            errorLayout = null;
+        }
+        if (scroller != null) {
+            scroller.forceFinished(true);
+        }
+        scrollTo(0, 0);
+        if (hasError || hadError || getContentWidth() != oldWidth || getContentHeight() != oldHeight) {
+            requestLayout();
+        }
+        invalidate();
+    }
+    
+    private void showError(String message) {
+        errorMessage = LatexMeasurer.errorText(message);
+        errorLayout = null;
+        
+        if (errorPaint == null) {
+            errorPaint = LatexMeasurer.newErrorPaint(getContext());
+            errorPaint.setColor(ERROR_TEXT_COLOR);
+            errorBackground = obtainErrorBackground();
         }
     }
     
+    private Drawable obtainErrorBackground() {
+        float density = getDensity();
+        if (errorBackgroundState == null || errorBackgroundDensity != density) {
+            GradientDrawable background = new GradientDrawable();
+            background.setColor(ERROR_BACKGROUND_COLOR);
+            background.setCornerRadius(dpToPx(8));
+            background.setStroke(dpToPx(1), ERROR_BORDER_COLOR);
+            errorBackgroundState = background.getConstantState();
+            errorBackgroundDensity = density;
+        }
+        return errorBackgroundState.newDrawable(getResources());
+    }
+    
+    /** Shared with {@link LatexMeasurer}, so Yoga sizes the box for every wrapped line. */
+    private StaticLayout obtainErrorLayout(int maxWidth) {
+        int padding = LatexMeasurer.errorPadding(getContext());
+        int width = LatexMeasurer.errorLayoutWidth(errorMessage, errorPaint, padding, maxWidth);
+        if (errorLayout == null || errorLayout.getWidth() != width) {
+            errorLayout = LatexMeasurer.errorLayout(errorMessage, errorPaint, padding, maxWidth);
+        }
+        return errorLayout;
+    }
+    
+    private TypesetLatex obtainTypeset(String latex) {
+        return LatexTypesetCache.getInstance().get(getContext(), latex, fontSize, getDensity());
+    }
+    
+    private float getDensity() {
+        return getResources().getDisplayMetrics().density;
+    }
+    
     private int dpToPx(int dp) {
         float density = getResources().getDisplayMetrics().density;
         return Math.round(dp * density);
     }
-
+    
+    private int getContentWidth() {
+        if (typeset != null && !hasError) {
+            return typeset.getPixelWidth() + getPaddingLeft() + getPaddingRight();
+        }
+        if (typeset == null && bitmapEntry != null) {
+            return bitmapEntry.getBitmap().getWidth() + getPaddingLeft() + getPaddingRight();
+        }
+        return 0;
+    }
+    
+    private int getContentHeight() {
+        if (typeset != null && !hasError) {
+            return typeset.getPixelHeight() + getPaddingTop() + getPaddingBottom();
+        }
+        if (typeset == null && bitmapEntry != null) {
+            return bitmapEntry.getBitmap().getHeight() + getPaddingTop() + getPaddingBottom();
+        }
+        return 0;
+    }
+    
+    private int getMaxScrollX() {
+        return Math.max(0, getContentWidth() - getWidth());
+    }
+    
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
-        // Measure children first
+        long traceStart = LatexTrace.begin(LatexTrace.MEASURE);
         int widthMode = MeasureSpec.getMode(widthMeasureSpec);
-        int heightMode = MeasureSpec.getMode(heightMeasureSpec);
         int widthSize = MeasureSpec.getSize(widthMeasureSpec);
-        int heightSize = MeasureSpec.getSize(heightMeasureSpec);
         
-        // Measure the mathView with UNSPECIFIED to get its natural size
-        int childWidthSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
-        int childHeightSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
-        
-        if (scrollView.getVisibility() == VISIBLE && mathView != null) {
-            mathView.measure(childWidthSpec, childHeightSpec);
-            scrollView.measure(
-                MeasureSpec.makeMeasureSpec(widthSize, widthMode == MeasureSpec.EXACTLY ? MeasureSpec.EXACTLY : MeasureSpec.AT_MOST),
-                MeasureSpec.makeMeasureSpec(mathView.getMeasuredHeight(), MeasureSpec.EXACTLY)
-            );
-        }
-        
-        if (errorView.getVisibility() == VISIBLE) {
-            errorView.measure(childWidthSpec, childHeightSpec);
-        }
-        
-        // Calculate final dimensions
         int measuredWidth;
         int measuredHeight;
         
-        if (scrollView.getVisibility() == VISIBLE) {
-            int mathWidth = mathView.getMeasuredWidth();
-            int mathHeight = mathView.getMeasuredHeight();
-            
-            // If mathView hasn't rendered yet (size is 1x1) but we have pending latex,
-            // estimate size based on latex content length and fontSize
-            String latexToMeasure = (pendingLatex != null && !pendingLatex.isEmpty()) ? pendingLatex : latexString;
-            if ((mathWidth <= 1 || mathHeight <= 1) && !latexToMeasure.isEmpty()) {
-                mathHeight = Math.round(fontSize * 2.5f);
-                // Estimate width: longer formulas need more space
-                // Use approximately 0.6 * fontSize per character as a rough estimate
-                mathWidth = Math.max(
-                    Math.round(fontSize * 5), 
-                    Math.round(latexToMeasure.length() * fontSize * 0.6f)
-                );
-            }
-            
-            // For React Native, we should use our calculated width if the mode allows
-            // If widthMode is AT_MOST, we can use up to widthSize
-            // If widthMode is UNSPECIFIED, use our calculated width
-            // If widthMode is EXACTLY, we must use widthSize
-            if (widthMode == MeasureSpec.EXACTLY) {
-                measuredWidth = widthSize;
-            } else if (widthMode == MeasureSpec.AT_MOST) {
-                measuredWidth = Math.min(mathWidth, widthSize);
-            } else {
-                // UNSPECIFIED - use our calculated width
-                measuredWidth = mathWidth;
-            }
-            measuredHeight = mathHeight;
-            
-            Log.d(TAG, "onMeasure calculation - widthMode=" + widthMode + " widthSize=" + widthSize + 
-                       " mathWidth=" + mathWidth + " measuredWidth=" + measuredWidth);
-        } else if (errorView.getVisibility() == VISIBLE) {
-            measuredWidth = errorView.getMeasuredWidth();
-            measuredHeight = errorView.getMeasuredHeight();
+        if (hasError && errorMessage != null) {
+            int padding = LatexMeasurer.errorPadding(getContext());
+            int maxWidth = widthMode == MeasureSpec.UNSPECIFIED ? Integer.MAX_VALUE / 2 : widthSize;
+            StaticLayout layout = obtainErrorLayout(maxWidth);
+            measuredWidth = layout.getWidth() + 2 * padding;
+            measuredHeight = layout.getHeight() + 2 * padding;
+        } else if (typeset != null || bitmapEntry != null) {
+            // Wider equations scroll horizontally within the width we are given
+            measuredWidth = getContentWidth();
+            measuredHeight = getContentHeight();
         } else {
             measuredWidth = 0;
             measuredHeight = 0;
         }
         
-        // Apply at least minimum size from setMinimumWidth/Height if set
-        measuredWidth = Math.max(measuredWidth, getSuggestedMinimumWidth());
-        measuredHeight = Math.max(measuredHeight, getSuggestedMinimumHeight());
-        
-        Log.d(TAG, "onMeasure - mathView measured: " + mathView.getMeasuredWidth() + "x" + mathView.getMeasuredHeight() +
-                   ", final: " + measuredWidth + "x" + measuredHeight +
-                   ", latex: '" + mathView.getLatex() + "'" +
-                   ", pendingLatex: " + (pendingLatex != null ? pendingLatex : "null"));
-        
         setMeasuredDimension(
             resolveSize(measuredWidth, widthMeasureSpec),
             resolveSize(measuredHeight, heightMeasureSpec)
         );
+        
+        LatexTrace.end(LatexTrace.MEASURE, getId(), traceStart, getMeasuredWidth(), getMeasuredHeight());
+    }
+    
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        long traceStart = LatexTrace.begin(LatexTrace.DRAW);
+        long start = LatexMetrics.now();
+        if (drawContent(canvas)) {
+            LatexMetrics.record(LatexMetrics.Phase.DRAW, start);
+            if (contentChangedAt != 0) {
+                LatexMetrics.record(LatexMetrics.Phase.PROP_TO_PIXEL, contentChangedAt);
+                contentChangedAt = 0;
+            }
+        }
+        LatexTrace.end(LatexTrace.DRAW, getId(), traceStart, getWidth(), getHeight());
+    }
+    
+    /** Draws the error box, raster or display list; returns false if there was nothing to draw. */
+    private boolean drawContent(Canvas canvas) {
+        if (hasError && errorMessage != null) {
+            int padding = LatexMeasurer.errorPadding(getContext());
+            StaticLayout layout = obtainErrorLayout(getWidth());
+            errorBackground.setBounds(0, 0, layout.getWidth() + 2 * padding, layout.getHeight() + 2 * padding);
+            errorBackground.draw(canvas);
+            canvas.save();
+            canvas.translate(padding, padding);
+            layout.draw(canvas);
+            canvas.restore();
+            return true;
+        }
+        
+        // Scrolling is applied by View.draw() through getScrollX()
+        if (bitmapMode) {
+            if (bitmapEntry == null && typeset != null) {
+                // Rasterize within a later frame's budget; the vector draw below
+                // looks the same in the meantime
+                scheduleRaster();
+            }
+            if (bitmapEntry != null) {
+                Paint paint = bitmapEntry.isTintable() ? obtainTintPaint() : BITMAP_PAINT;
+                canvas.drawBitmap(bitmapEntry.getBitmap(), getPaddingLeft(), getPaddingTop(), paint);
+                return true;
+            }
+        }
+        if (typeset == null) {
+            return false;
+        }
+        typeset.draw(canvas, getPaddingLeft(), getPaddingTop(), textColor);
+        return true;
+    }
+    
+    private Paint obtainTintPaint() {
+        if (tintPaint == null || tintColor != textColor) {
+            if (tintPaint == null) {
+                tintPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            }
+            tintPaint.setColorFilter(new PorterDuffColorFilter(textColor, PorterDuff.Mode.SRC_IN));
+            tintColor = textColor;
+        }
+        return tintPaint;
+    }
+    
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (getMaxScrollX() == 0) {
+            // Content fits: leave the gesture to the parent list
+            return super.onTouchEvent(event);
+        }
+        
+        if (gestureDetector == null) {
+            scroller = new OverScroller(getContext());
+            gestureDetector = new GestureDetector(getContext(), new GestureDetector.SimpleOnGestureListener() {
+                @Override
+                public boolean onDown(MotionEvent e) {
+                    scroller.forceFinished(true);
+                    return true;
+                }
+                
+                @Override
+                public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+                    scrollTo(clampScrollX(getScrollX() + Math.round(distanceX)), 0);
+                    return true;
+                }
+                
+                @Override
+                public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
+                    scroller.fling(getScrollX(), 0, -Math.round(velocityX), 0, 0, getMaxScrollX(), 0, 0);
+                    postInvalidateOnAnimation();
+                    return true;
+                }
+            });
+        }
+        
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_MOVE) {
+            getParent().requestDisallowInterceptTouchEvent(true);
+        } else if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            getParent().requestDisallowInterceptTouchEvent(false);
+        }
+        return gestureDetector.onTouchEvent(event) || super.onTouchEvent(event);
+    }
+    
+    @Override
+    public void computeScroll() {
+        if (scroller != null && scroller.computeScrollOffset()) {
+            scrollTo(clampScrollX(scroller.getCurrX()), 0);
+            postInvalidateOnAnimation();
+        }
+    }
+    
+    private int clampScrollX(int x) {
+        return Math.max(0, Math.min(x, getMaxScrollX()));
+    }
+    
+    @Override
+    protected int computeHorizontalScrollRange() {
+        return Math.max(getContentWidth(), getWidth());
     }
     
     @Override
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         super.onLayout(changed, left, top, right, bottom);
-        Log.d(TAG, "onLayout - final size: " + (right - left) + "x" + (bottom - top));
+        LatexTrace.event(LatexTrace.LAYOUT, getId(), right - left, bottom - top);
+        if (changed) {
+            scrollTo(clampScrollX(getScrollX()), 0);
+            // The first layout tells whether a view mounted in a batch is actually on screen
+            if (pendingRequest != null) {
+                LatexRenderScheduler.getInstance().reprioritize(pendingRequest, currentPriority());
+            }
+        }
     }
 }
@@ -0,0 +1,60 @@
+package com.latexrenderer.latex;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.agog.mathdisplay.parse.MTMathList;
+
+/**
+ * ParsedLatex - Immutable result of parsing one normalized LaTeX string.
+ *
+ * Instances are produced by {@link LatexParseCache} and shared between every
+ * view showing the same equation. The math list must never be mutated by callers;
+ * the typesetter works on a finalized copy, so sharing it is safe.
+ */
+public final class ParsedLatex {
+    
+    private final String latex;
+    
+    @Nullable
+    private final MTMathList mathList;
+    
+    @Nullable
+    private final String error;
+    
+    private final int estimatedBytes;
+    
+    ParsedLatex(@NonNull String latex, @Nullable MTMathList mathList, @Nullable String error) {
+        this.latex = latex;
+        this.mathList = mathList;
+        this.error = error;
+        // Rough footprint: the key string plus roughly one atom object per source character
+        this.estimatedBytes = 64 + latex.length() * 2 + (mathList != null ? latex.length() * 48 : 0);
+    }
+    
+    /** The normalized LaTeX source this result was parsed from. */
+    @NonNull
+    public String getLatex() {
+        return latex;
+    }
+    
+    /** The parsed math list, or null if parsing failed. */
+    @Nullable
+    public MTMathList getMathList() {
+        return mathList;
+    }
+    
+    /** The parser error description, or null if parsing succeeded. */
+    @Nullable
+    public String getError() {
+        return error;
+    }
+    
+    public boolean hasError() {
+        return mathList == null;
+    }
+    
+    int getEstimatedBytes() {
+        return estimatedBytes;
+    }
+}
@@ -0,0 +1,122 @@
+package com.latexrenderer.latex;
+
+import android.graphics.Canvas;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.agog.mathdisplay.render.MTMathListDisplay;
+
+/**
+ * TypesetLatex - A typeset display list for one (latex, fontSize, density) key.
+ *
+ * Produced by {@link LatexTypesetCache} and shared between views. Color is not part
+ * of the typeset result: it is applied to the display list right before drawing,
+ * which always happens on the main thread, so one instance can serve views of any color.
+ */
+public final class TypesetLatex {
+    
+    private final ParsedLatex parsed;
+    
+    @Nullable
+    private final MTMathListDisplay display;
+    
+    @Nullable
+    private final String error;
+    
+    private final float fontSize;
+    private final float density;
+    private final float ascent;
+    private final float descent;
+    private final float width;
+    private final int estimatedBytes;
+    
+    TypesetLatex(@NonNull ParsedLatex parsed, @Nullable MTMathListDisplay display, float fontSize, float density) {
+        this(parsed, display, null, fontSize, density);
+    }
+    
+    TypesetLatex(@NonNull ParsedLatex parsed, @Nullable MTMathListDisplay display, @Nullable String error,
+                 float fontSize, float density) {
+        this.parsed = parsed;
+        this.display = display;
+        this.error = error;
+        this.fontSize = fontSize;
+        this.density = density;
+        this.ascent = display != null ? display.getAscent() : 0f;
+        this.descent = display != null ? display.getDescent() : 0f;
+        this.width = display != null ? display.getWidth() : 0f;
+        // Roughly one display node per source character plus the shared parse result
+        this.estimatedBytes = 256 + (display != null ? parsed.getLatex().length() * 160 : 0);
+    }
+    
+    @NonNull
+    public ParsedLatex getParsed() {
+        return parsed;
+    }
+    
+    public boolean hasError() {
+        return display == null;
+    }
+    
+    @Nullable
+    public String getError() {
+        return error != null ? error : parsed.getError();
+    }
+    
+    public float getFontSize() {
+        return fontSize;
+    }
+    
+    public float getDensity() {
+        return density;
+    }
+    
+    public float getAscent() {
+        return ascent;
+    }
+    
+    public float getDescent() {
+        return descent;
+    }
+    
+    public float getWidth() {
+        return width;
+    }
+    
+    /** Width in whole pixels, as used for view measurement. */
+    public int getPixelWidth() {
+        return (int) Math.ceil(width);
+    }
+    
+    /** Height (ascent + descent) in whole pixels, as used for view measurement. */
+    public int getPixelHeight() {
+        return (int) Math.ceil(ascent + descent);
+    }
+    
+    int getEstimatedBytes() {
+        return estimatedBytes;
+    }
+    
+    /**
+     * Draws the display list with its top-left corner at (left, top).
+     * Must be called on the main thread for cached instances, which are shared.
+     * Holds the font lock, so it waits for at most one typeset in progress.
+     */
+    public void draw(@NonNull Canvas canvas, float left, float top, int color) {
+        if (display == null) {
+            return;
+        }
+        if (display.getTextColor() != color) {
+            display.setTextColor(color);
+        }
+        // The typesetter works in a y-up coordinate system with the baseline at y = 0
+        canvas.save();
+        canvas.translate(left, top + ascent);
+        canvas.scale(1f, -1f);
+        // Glyphs are drawn through the shared font, which a background typeset may be using
+        synchronized (LatexTypesetCache.FONT_LOCK) {
+            display.draw(canvas);
+        }
+        canvas.restore();
+    }
+}
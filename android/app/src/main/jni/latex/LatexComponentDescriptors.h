@@ -0,0 +1,41 @@
+#pragma once
+
+#include "LatexMeasurementsManager.h"
+#include "NativeLatexParagraphViewShadowNode.h"
+#include "NativeLatexViewShadowNode.h"
+
+#include <react/renderer/core/ConcreteComponentDescriptor.h>
+
+namespace facebook::react {
+
+/*
+ * Component descriptor for the measurable LaTeX components. Each component
+ * type owns one LatexMeasurementsManager, handed to every shadow node it adopts.
+ */
+template <typename ShadowNodeT>
+class LatexComponentDescriptor final
+    : public ConcreteComponentDescriptor<ShadowNodeT> {
+ public:
+  LatexComponentDescriptor(const ComponentDescriptorParameters& parameters)
+      : ConcreteComponentDescriptor<ShadowNodeT>(parameters),
+        measurementsManager_(std::make_shared<LatexMeasurementsManager>(
+            this->contextContainer_,
+            ShadowNodeT::Name())) {}
+
+  void adopt(ShadowNode& shadowNode) const override {
+    ConcreteComponentDescriptor<ShadowNodeT>::adopt(shadowNode);
+
+    auto& latexShadowNode = static_cast<ShadowNodeT&>(shadowNode);
+    latexShadowNode.setMeasurementsManager(measurementsManager_);
+  }
+
+ private:
+  const std::shared_ptr<LatexMeasurementsManager> measurementsManager_;
+};
+
+using NativeLatexViewComponentDescriptor =
+    LatexComponentDescriptor<NativeLatexViewShadowNode>;
+using NativeLatexParagraphViewComponentDescriptor =
+    LatexComponentDescriptor<NativeLatexParagraphViewShadowNode>;
+
+} // namespace facebook::react
@@ -0,0 +1,74 @@
+#include "LatexMeasurementsManager.h"
+
+#include <fbjni/fbjni.h>
+#include <folly/dynamic.h>
+#include <react/jni/ReadableNativeMap.h>
+#include <react/renderer/core/conversions.h>
+
+using namespace facebook::jni;
+
+namespace facebook::react {
+
+Size LatexMeasurementsManager::measure(
+    SurfaceId surfaceId,
+    folly::dynamic measuredProps,
+    const std::string& cacheKey,
+    LayoutConstraints layoutConstraints) const {
+  auto minimumSize = layoutConstraints.minimumSize;
+  auto maximumSize = layoutConstraints.maximumSize;
+
+  std::string key = std::to_string(minimumSize.width) + "|" +
+      std::to_string(maximumSize.width) + "|" +
+      std::to_string(minimumSize.height) + "|" +
+      std::to_string(maximumSize.height) + "|" + cacheKey;
+
+  {
+    std::scoped_lock lock(mutex_);
+    auto it = cachedMeasurements_.find(key);
+    if (it != cachedMeasurements_.end()) {
+      return it->second;
+    }
+  }
+
+  const jni::global_ref<jobject>& fabricUIManager =
+      contextContainer_->at<jni::global_ref<jobject>>("FabricUIManager");
+
+  static auto measure = facebook::jni::findClassStatic(
+                            "com/facebook/react/fabric/FabricUIManager")
+                            ->getMethod<jlong(
+                                jint,
+                                jstring,
+                                ReadableMap::javaobject,
+                                ReadableMap::javaobject,
+                                ReadableMap::javaobject,
+                                jfloat,
+                                jfloat,
+                                jfloat,
+                                jfloat)>("measure");
+
+  local_ref<JString> componentName = make_jstring(componentName_);
+
+  local_ref<ReadableNativeMap::javaobject> propsMap =
+      ReadableNativeMap::newObjectCxxArgs(std::move(measuredProps));
+
+  auto measurement = yogaMeassureToSize(measure(
+      fabricUIManager,
+      surfaceId,
+      componentName.get(),
+      nullptr,
+      propsMap.get(),
+      nullptr,
+      minimumSize.width,
+      maximumSize.width,
+      minimumSize.height,
+      maximumSize.height));
+
+  std::scoped_lock lock(mutex_);
+  if (cachedMeasurements_.size() >= kMaxCachedMeasurements) {
+    cachedMeasurements_.clear();
+  }
+  cachedMeasurements_.emplace(std::move(key), measurement);
+  return measurement;
+}
+
+} // namespace facebook::react
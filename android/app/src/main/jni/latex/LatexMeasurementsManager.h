@@ -0,0 +1,43 @@
+#pragma once
+
+#include <folly/dynamic.h>
+#include <react/renderer/core/LayoutConstraints.h>
+#include <react/renderer/core/ReactPrimitives.h>
+#include <react/utils/ContextContainer.h>
+
+#include <mutex>
+#include <string>
+#include <unordered_map>
+
+namespace facebook::react {
+
+/*
+ * Measures Java-rendered LaTeX components by calling FabricUIManager.measure(),
+ * which dispatches to the component's ViewManager.measure(). Results are memoized
+ * per (cacheKey, constraints) because the Java side already caches the typeset
+ * layout and the JNI round trip is the dominant cost on repeat rows. The cache
+ * key must cover every prop passed in measuredProps.
+ */
+class LatexMeasurementsManager {
+ public:
+  LatexMeasurementsManager(
+      const std::shared_ptr<const ContextContainer>& contextContainer,
+      const char* componentName)
+      : contextContainer_(contextContainer), componentName_(componentName) {}
+
+  Size measure(
+      SurfaceId surfaceId,
+      folly::dynamic measuredProps,
+      const std::string& cacheKey,
+      LayoutConstraints layoutConstraints) const;
+
+ private:
+  static constexpr size_t kMaxCachedMeasurements = 512;
+
+  const std::shared_ptr<const ContextContainer> contextContainer_;
+  const char* componentName_;
+  mutable std::mutex mutex_;
+  mutable std::unordered_map<std::string, Size> cachedMeasurements_;
+};
+
+} // namespace facebook::react
@@ -0,0 +1,33 @@
+#include "NativeLatexParagraphViewShadowNode.h"
+
+namespace facebook::react {
+
+extern const char NativeLatexParagraphViewComponentName[] =
+    "NativeLatexParagraphView";
+
+void NativeLatexParagraphViewShadowNode::setMeasurementsManager(
+    const std::shared_ptr<LatexMeasurementsManager>& measurementsManager) {
+  ensureUnsealed();
+  measurementsManager_ = measurementsManager;
+}
+
+Size NativeLatexParagraphViewShadowNode::measureContent(
+    const LayoutContext& /*layoutContext*/,
+    const LayoutConstraints& layoutConstraints) const {
+  const auto& props = getConcreteProps();
+  if (props.text.empty()) {
+    return {0, 0};
+  }
+  std::string cacheKey = std::to_string(props.fontSize) + "|" +
+      std::to_string(props.mathFontSize) + "|" +
+      std::to_string(props.displayMathFontSize) + "|" + props.text;
+  return measurementsManager_->measure(
+      getSurfaceId(),
+      folly::dynamic::object("text", props.text)("fontSize", props.fontSize)(
+          "mathFontSize", props.mathFontSize)(
+          "displayMathFontSize", props.displayMathFontSize),
+      cacheKey,
+      layoutConstraints);
+}
+
+} // namespace facebook::react
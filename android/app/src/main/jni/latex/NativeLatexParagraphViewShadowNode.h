@@ -0,0 +1,44 @@
+#pragma once
+
+#include "LatexMeasurementsManager.h"
+
+#include <react/renderer/components/LatexRendererSpec/EventEmitters.h>
+#include <react/renderer/components/LatexRendererSpec/Props.h>
+#include <react/renderer/components/view/ConcreteViewShadowNode.h>
+
+namespace facebook::react {
+
+extern const char NativeLatexParagraphViewComponentName[];
+
+/*
+ * Leaf shadow node for NativeLatexParagraphView. Yoga calls measureContent()
+ * with the available width, and LatexParagraphViewManager.measure() wraps the
+ * paragraph to it.
+ */
+class NativeLatexParagraphViewShadowNode final
+    : public ConcreteViewShadowNode<
+          NativeLatexParagraphViewComponentName,
+          NativeLatexParagraphViewProps,
+          NativeLatexParagraphViewEventEmitter> {
+ public:
+  using ConcreteViewShadowNode::ConcreteViewShadowNode;
+
+  static ShadowNodeTraits BaseTraits() {
+    auto traits = ConcreteViewShadowNode::BaseTraits();
+    traits.set(ShadowNodeTraits::Trait::LeafYogaNode);
+    traits.set(ShadowNodeTraits::Trait::MeasurableYogaNode);
+    return traits;
+  }
+
+  void setMeasurementsManager(
+      const std::shared_ptr<LatexMeasurementsManager>& measurementsManager);
+
+  Size measureContent(
+      const LayoutContext& layoutContext,
+      const LayoutConstraints& layoutConstraints) const override;
+
+ private:
+  std::shared_ptr<LatexMeasurementsManager> measurementsManager_;
+};
+
+} // namespace facebook::react
@@ -0,0 +1,28 @@
+#include "NativeLatexViewShadowNode.h"
+
+namespace facebook::react {
+
+extern const char NativeLatexViewComponentName[] = "NativeLatexView";
+
+void NativeLatexViewShadowNode::setMeasurementsManager(
+    const std::shared_ptr<LatexMeasurementsManager>& measurementsManager) {
+  ensureUnsealed();
+  measurementsManager_ = measurementsManager;
+}
+
+Size NativeLatexViewShadowNode::measureContent(
+    const LayoutContext& /*layoutContext*/,
+    const LayoutConstraints& layoutConstraints) const {
+  const auto& props = getConcreteProps();
+  if (props.latex.empty()) {
+    return {0, 0};
+  }
+  std::string cacheKey = std::to_string(props.fontSize) + "|" + props.latex;
+  return measurementsManager_->measure(
+      getSurfaceId(),
+      folly::dynamic::object("latex", props.latex)("fontSize", props.fontSize),
+      cacheKey,
+      layoutConstraints);
+}
+
+} // namespace facebook::react
@@ -0,0 +1,42 @@
+#pragma once
+
+#include "LatexMeasurementsManager.h"
+
+#include <react/renderer/components/LatexRendererSpec/EventEmitters.h>
+#include <react/renderer/components/LatexRendererSpec/Props.h>
+#include <react/renderer/components/view/ConcreteViewShadowNode.h>
+
+namespace facebook::react {
+
+extern const char NativeLatexViewComponentName[];
+
+/*
+ * Leaf shadow node for NativeLatexView. Yoga calls measureContent() during
+ * layout, which asks LatexViewManager.measure() for the exact typeset size.
+ */
+class NativeLatexViewShadowNode final : public ConcreteViewShadowNode<
+                                            NativeLatexViewComponentName,
+                                            NativeLatexViewProps,
+                                            NativeLatexViewEventEmitter> {
+ public:
+  using ConcreteViewShadowNode::ConcreteViewShadowNode;
+
+  static ShadowNodeTraits BaseTraits() {
+    auto traits = ConcreteViewShadowNode::BaseTraits();
+    traits.set(ShadowNodeTraits::Trait::LeafYogaNode);
+    traits.set(ShadowNodeTraits::Trait::MeasurableYogaNode);
+    return traits;
+  }
+
+  void setMeasurementsManager(
+      const std::shared_ptr<LatexMeasurementsManager>& measurementsManager);
+
+  Size measureContent(
+      const LayoutContext& layoutContext,
+      const LayoutConstraints& layoutConstraints) const override;
+
+ private:
+  std::shared_ptr<LatexMeasurementsManager> measurementsManager_;
+};
+
+} // namespace facebook::react
@@ -0,0 +1,160 @@
+package com.latexrenderer.latex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.graphics.Bitmap;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * LatexMemoryTrimmerTest - Cache sizes after each onTrimMemory level.
+ *
+ * Every test starts with each cache full at its budget:
+ * - Rasters: 40 equally sized bitmaps, none still drawn by a view
+ * - Display lists and parse trees: 32 equations of equal length
+ */
+@RunWith(RobolectricTestRunner.class)
+@SuppressWarnings("deprecation")
+public class LatexMemoryTrimmerTest {
+    
+    private static final int BITMAP_COUNT = 40;
+    private static final int EQUATION_COUNT = 32;
+    private static final float FONT_SIZE = 20f;
+    private static final float DENSITY = 1f;
+    
+    private final LatexBitmapCache bitmaps = LatexBitmapCache.getInstance();
+    private final LatexTypesetCache typesets = LatexTypesetCache.getInstance();
+    private final LatexParseCache parses = LatexParseCache.getInstance();
+    private final LatexMemoryTrimmer trimmer = new LatexMemoryTrimmer();
+    
+    private long typesetBytes;
+    private long parseBytes;
+    
+    @Before
+    public void fillCaches() {
+        Context context = ApplicationProvider.getApplicationContext();
+        clearCaches();
+        
+        long bitmapBytes = 0;
+        for (int i = 0; i < BITMAP_COUNT; i++) {
+            Bitmap bitmap = Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888);
+            bitmapBytes += bitmap.getAllocationByteCount();
+            bitmaps.release(bitmaps.insert("bitmap-" + i, bitmap, true));
+        }
+        bitmaps.setMaxBytes(bitmapBytes);
+        bitmaps.getPool().setMaxBytes(bitmapBytes);
+        
+        for (int i = 0; i < EQUATION_COUNT; i++) {
+            typesets.get(context, "x_{" + (10 + i) + "}", FONT_SIZE, DENSITY);
+        }
+        typesets.setMaxBytes(typesets.sizeBytes());
+        typesetBytes = typesets.sizeBytes();
+        parseBytes = parses.sizeBytes();
+        
+        assertEquals(BITMAP_COUNT, bitmaps.size());
+        assertEquals(EQUATION_COUNT, typesets.size());
+        assertEquals(EQUATION_COUNT, parses.size());
+    }
+    
+    @After
+    public void restoreBudgets() {
+        clearCaches();
+        bitmaps.setMaxBytes(LatexBitmapCache.DEFAULT_MAX_BYTES);
+        bitmaps.getPool().setMaxBytes(LatexBitmapPool.DEFAULT_MAX_BYTES);
+        typesets.setMaxBytes(LatexTypesetCache.DEFAULT_MAX_BYTES);
+    }
+    
+    @Test
+    public void runningModerate_halvesRastersOnly() {
+        trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        
+        assertHalved(bitmaps.sizeBytes(), bitmaps.getMaxBytes());
+        assertTrue(bitmaps.getPool().sizeBytes() <= bitmaps.getMaxBytes() / 8);
+        assertEquals(typesetBytes, typesets.sizeBytes());
+        assertEquals(parseBytes, parses.sizeBytes());
+    }
+    
+    @Test
+    public void runningLow_dropsRastersAndHalvesDisplayLists() {
+        trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        
+        assertRastersDropped();
+        assertHalved(typesets.sizeBytes(), typesetBytes);
+        assertEquals(parseBytes, parses.sizeBytes());
+    }
+    
+    @Test
+    public void runningCritical_dropsDisplayListsAndHalvesParseTrees() {
+        trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        
+        assertRastersDropped();
+        assertEquals(0, typesets.sizeBytes());
+        assertHalved(parses.sizeBytes(), parseBytes);
+    }
+    
+    @Test
+    public void uiHidden_dropsRastersOnly() {
+        trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        
+        assertRastersDropped();
+        assertEquals(typesetBytes, typesets.sizeBytes());
+        assertEquals(parseBytes, parses.sizeBytes());
+    }
+    
+    @Test
+    public void background_dropsRastersAndHalvesDisplayLists() {
+        trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        
+        assertRastersDropped();
+        assertHalved(typesets.sizeBytes(), typesetBytes);
+        assertEquals(parseBytes, parses.sizeBytes());
+    }
+    
+    @Test
+    public void moderate_dropsEverything() {
+        trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+        
+        assertRastersDropped();
+        assertEquals(0, typesets.sizeBytes());
+        assertEquals(0, parses.sizeBytes());
+    }
+    
+    @Test
+    public void trimmingKeepsBudgets() {
+        long bitmapBudget = bitmaps.getMaxBytes();
+        long typesetBudget = typesets.getMaxBytes();
+        
+        trimmer.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_MODERATE);
+        
+        assertEquals(bitmapBudget, bitmaps.getMaxBytes());
+        assertEquals(typesetBudget, typesets.getMaxBytes());
+    }
+    
+    private void assertRastersDropped() {
+        assertEquals(0, bitmaps.size());
+        assertEquals(0, bitmaps.sizeBytes());
+        assertEquals(0, bitmaps.getPool().sizeBytes());
+    }
+    
+    /** Trimmed to at most half, but not emptied. */
+    private static void assertHalved(long actualBytes, long fullBytes) {
+        assertTrue("expected <= " + fullBytes / 2 + " but was " + actualBytes, actualBytes <= fullBytes / 2);
+        assertTrue("expected entries to remain", actualBytes > 0);
+    }
+    
+    private void clearCaches() {
+        bitmaps.clear();
+        bitmaps.getPool().clear();
+        typesets.clear();
+        parses.clear();
+    }
+}
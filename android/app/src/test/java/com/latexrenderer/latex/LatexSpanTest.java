@@ -0,0 +1,110 @@
+package com.latexrenderer.latex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.text.TextPaint;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * LatexSpanTest - Line metrics and placement of inline equations.
+ *
+ * A tall fraction in small text must grow the line to its ascent and descent,
+ * report its typeset width, and draw with its baseline on the text baseline.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LatexSpanTest {
+    
+    private static final String FRACTION = "\\frac{a^2}{b_1}";
+    private static final float MATH_FONT_SIZE = 40f;
+    
+    private Context context;
+    private TypesetLatex typeset;
+    
+    @Before
+    public void setUp() {
+        context = ApplicationProvider.getApplicationContext();
+        typeset = LatexTypesetCache.getInstance().get(context, FRACTION, MATH_FONT_SIZE, 1f);
+        assertFalse("fraction should typeset cleanly", typeset.hasError());
+    }
+    
+    @Test
+    public void getSize_reportsTypesetWidthAndGrowsTheLine() {
+        TextPaint paint = textPaint(8f);
+        Paint.FontMetricsInt fm = new Paint.FontMetricsInt();
+        
+        int width = new LatexSpan(typeset).getSize(paint, "\uFFFC", 0, 1, fm);
+        
+        assertEquals(typeset.getPixelWidth(), width);
+        assertEquals(-(int) Math.ceil(typeset.getAscent()), fm.ascent);
+        assertEquals((int) Math.ceil(typeset.getDescent()), fm.descent);
+        assertTrue(fm.top <= fm.ascent);
+        assertTrue(fm.bottom >= fm.descent);
+    }
+    
+    @Test
+    public void getSize_neverShrinksTheLine() {
+        TextPaint paint = textPaint(400f);
+        Paint.FontMetricsInt text = paint.getFontMetricsInt();
+        Paint.FontMetricsInt fm = new Paint.FontMetricsInt();
+        
+        new LatexSpan(typeset).getSize(paint, "\uFFFC", 0, 1, fm);
+        
+        assertEquals(Math.min(text.ascent, -(int) Math.ceil(typeset.getAscent())), fm.ascent);
+        assertEquals(Math.max(text.descent, (int) Math.ceil(typeset.getDescent())), fm.descent);
+    }
+    
+    @Test
+    public void getSize_measuresSourceOfFailedEquations() {
+        TypesetLatex failed = LatexTypesetCache.getInstance().get(context, "\\frac{a", MATH_FONT_SIZE, 1f);
+        assertTrue(failed.hasError());
+        TextPaint paint = textPaint(16f);
+        
+        int width = new LatexSpan(failed).getSize(paint, "\uFFFC", 0, 1, null);
+        
+        assertEquals((int) Math.ceil(paint.measureText(failed.getParsed().getLatex())), width);
+    }
+    
+    @Test
+    public void draw_placesTheEquationBaselineOnTheTextBaseline() {
+        RecordingCanvas canvas = new RecordingCanvas();
+        float x = 12f;
+        int baseline = 90;
+        
+        new LatexSpan(typeset).draw(canvas, "\uFFFC", 0, 1, x, 40, baseline, 120, textPaint(16f));
+        
+        // TypesetLatex.draw moves the origin to the equation baseline before flipping y
+        assertEquals(x, canvas.firstTranslateX, 0.001f);
+        assertEquals(baseline, canvas.firstTranslateY, 0.001f);
+    }
+    
+    private static TextPaint textPaint(float textSize) {
+        TextPaint paint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTextSize(textSize);
+        return paint;
+    }
+    
+    private static final class RecordingCanvas extends Canvas {
+        float firstTranslateX = Float.NaN;
+        float firstTranslateY = Float.NaN;
+        
+        @Override
+        public void translate(float dx, float dy) {
+            if (Float.isNaN(firstTranslateX)) {
+                firstTranslateX = dx;
+                firstTranslateY = dy;
+            }
+            super.translate(dx, dy);
+        }
+    }
+}
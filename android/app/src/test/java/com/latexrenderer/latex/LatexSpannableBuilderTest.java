@@ -0,0 +1,48 @@
+package com.latexrenderer.latex;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+import android.text.Spannable;
+import android.util.TypedValue;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * LatexSpannableBuilderTest - Placement and sizing of equation spans.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class LatexSpannableBuilderTest {
+    
+    @Test
+    public void build_replacesEachEquationWithOneSpan() {
+        Context context = ApplicationProvider.getApplicationContext();
+        
+        Spannable text = LatexSpannableBuilder.build(context, "Let $x$ and $$y^2$$ end", 20f, 0f);
+        
+        assertEquals("Let \uFFFC and \n\uFFFC\n end", text.toString());
+        LatexSpan[] spans = text.getSpans(0, text.length(), LatexSpan.class);
+        assertEquals(2, spans.length);
+        assertEquals(4, text.getSpanStart(spans[0]));
+        assertEquals(11, text.getSpanStart(spans[1]));
+    }
+    
+    @Test
+    public void build_scalesMathSizesLikeText() {
+        Context context = ApplicationProvider.getApplicationContext();
+        float inlinePx = TypedValue.applyDimension(
+            TypedValue.COMPLEX_UNIT_SP, 20f, context.getResources().getDisplayMetrics());
+        float displayPx = TypedValue.applyDimension(
+            TypedValue.COMPLEX_UNIT_SP, 28f, context.getResources().getDisplayMetrics());
+        
+        Spannable text = LatexSpannableBuilder.build(context, "$x$ $$y$$", 20f, 28f);
+        
+        LatexSpan[] spans = text.getSpans(0, text.length(), LatexSpan.class);
+        assertEquals(inlinePx, spans[0].getTypeset().getFontSize(), 0.001f);
+        assertEquals(displayPx, spans[1].getTypeset().getFontSize(), 0.001f);
+    }
+}
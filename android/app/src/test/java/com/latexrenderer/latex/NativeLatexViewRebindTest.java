@@ -0,0 +1,103 @@
+package com.latexrenderer.latex;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Activity;
+import android.widget.FrameLayout;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * NativeLatexViewRebindTest - Re-attaching or recycling a view never re-typesets.
+ *
+ * The equation is typeset once up front, as the first view showing it would,
+ * and every later bind must be served from {@link LatexTypesetCache}. A
+ * re-attach must not render at all, which the cache's hit count shows.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NativeLatexViewRebindTest {
+    
+    private static final String LATEX = "\\frac{a}{b} + \\sqrt{x^2 + 1}";
+    private static final float FONT_SIZE = 20f;
+    
+    private final LatexTypesetCache typesets = LatexTypesetCache.getInstance();
+    
+    private FrameLayout container;
+    private NativeLatexView view;
+    
+    @Before
+    public void setUp() {
+        Activity activity = Robolectric.buildActivity(Activity.class).setup().get();
+        container = new FrameLayout(activity);
+        activity.setContentView(container);
+        
+        typesets.clear();
+        LatexParseCache.getInstance().clear();
+        float density = activity.getResources().getDisplayMetrics().density;
+        long before = typesets.getTypesetCount();
+        typesets.get(activity, LATEX, FONT_SIZE, density);
+        assertEquals("equation should typeset cleanly", before + 1, typesets.getTypesetCount());
+        
+        view = new NativeLatexView(activity);
+        container.addView(view);
+        bind(view);
+    }
+    
+    @Test
+    public void detachAndAttach_doesNotRenderAgain() {
+        long typesetCount = typesets.getTypesetCount();
+        long missCount = typesets.getMissCount();
+        // Any render, even one served from the cache, would count a hit
+        long hitCount = typesets.getHitCount();
+        
+        container.removeView(view);
+        container.addView(view);
+        container.removeView(view);
+        container.addView(view);
+        
+        assertTrue(view.isAttachedToWindow());
+        assertEquals(typesetCount, typesets.getTypesetCount());
+        assertEquals(missCount, typesets.getMissCount());
+        assertEquals(hitCount, typesets.getHitCount());
+    }
+    
+    @Test
+    public void resetForReuseAndRebind_doesNotTypesetAgain() {
+        long typesetCount = typesets.getTypesetCount();
+        long missCount = typesets.getMissCount();
+        
+        // As LatexViewPool does: reset on recycle, then bound again before mounting
+        container.removeView(view);
+        view.resetForReuse();
+        bind(view);
+        container.addView(view);
+        
+        assertEquals(typesetCount, typesets.getTypesetCount());
+        assertEquals(missCount, typesets.getMissCount());
+    }
+    
+    @Test
+    public void attach_rendersDeferredContentOnce() {
+        NativeLatexView detached = new NativeLatexView(container.getContext());
+        bind(detached);
+        long hitCount = typesets.getHitCount();
+        
+        container.addView(detached);
+        assertEquals(hitCount + 1, typesets.getHitCount());
+        
+        container.removeView(detached);
+        container.addView(detached);
+        assertEquals(hitCount + 1, typesets.getHitCount());
+    }
+    
+    private static void bind(NativeLatexView view) {
+        view.setLatex(LATEX);
+        view.setFontSize(FONT_SIZE);
+        view.commitProps();
+    }
+}
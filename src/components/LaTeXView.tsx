@@ -4,15 +4,13 @@ import {
   Image,
   Text,
   StyleSheet,
-  NativeModules,
   ActivityIndicator,
   ViewStyle,
 } from 'react-native';
-
-const { LaTeXRenderer } = NativeModules;
+import type { RenderResult } from '../specs/NativeLaTeXRenderer';
+import { renderLatexImage } from '../utils/renderLatexImage';
 
 interface LaTeXViewProps {
-
   latex: string;
   fontSize?: number;
   textColor?: string;
@@ -30,44 +28,38 @@ const LaTeXView: React.FC<LaTeXViewProps> = memo(
     style,
     onError,
   }) => {
-    const [imageUri, setImageUri] = useState<string | null>(null);
+    const [image, setImage] = useState<RenderResult | null>(null);
     const [error, setError] = useState<string | null>(null);
     const [loading, setLoading] = useState(true);
-    const [imageDimensions, setImageDimensions] = useState({
-      width: 100,
-      height: 30,
-    });
 
     useEffect(() => {
-      let isMounted = true;
-
-      const renderLaTeX = async () => {
-        if (!latex || latex.trim() === '') {
-          setError('Empty LaTeX expression');
-          setLoading(false);
-          return;
-        }
-
-        try {
-          setLoading(true);
-          setError(null);
-
-          if (!LaTeXRenderer || !LaTeXRenderer.renderLaTeX) {
-            throw new Error('LaTeXRenderer native module not available');
-          }
-
-          const result = await LaTeXRenderer.renderLaTeX(latex, {
-            fontSize,
-            textColor,
-            maxWidth,
-          });
-
-          if (isMounted) {
-            setImageUri(result);
+      if (!latex || latex.trim() === '') {
+        setError('Empty LaTeX expression');
+        setLoading(false);
+        return;
+      }
+
+      setLoading(true);
+      setError(null);
+
+      // Cancelled on unmount or prop change, so native drops work for rows
+      // that have scrolled away instead of finishing it
+      const render = renderLatexImage(latex, {
+        fontSize,
+        textColor,
+        maxWidth,
+      });
+      let isActive = true;
+
+      render.promise.then(
+        result => {
+          if (isActive) {
+            setImage(result);
             setLoading(false);
           }
-        } catch (err: unknown) {
-          if (isMounted) {
+        },
+        (err: unknown) => {
+          if (isActive) {
             const errorMessage =
               err instanceof Error ? err.message : 'Failed to render LaTeX';
             setError(errorMessage);
@@ -76,13 +68,12 @@ const LaTeXView: React.FC<LaTeXViewProps> = memo(
               onError(errorMessage);
             }
           }
-        }
-      };
-
-      renderLaTeX();
+        },
+      );
 
       return () => {
-        isMounted = false;
+        isActive = false;
+        render.cancel();
       };
     }, [latex, fontSize, textColor, maxWidth, onError]);
 
@@ -106,7 +97,7 @@ const LaTeXView: React.FC<LaTeXViewProps> = memo(
       );
     }
 
-    if (!imageUri) {
+    if (!image) {
       return (
         <View style={[styles.container, style]}>
           <Text style={styles.fallbackText}>{latex}</Text>
@@ -116,22 +107,9 @@ const LaTeXView: React.FC<LaTeXViewProps> = memo(
     return (
       <View style={[styles.container, style]}>
         <Image
-          source={{ uri: imageUri }}
-          style={{
-            width: imageDimensions.width,
-            height: imageDimensions.height,
-          }}
+          source={{ uri: image.uri, width: image.width, height: image.height }}
+          style={{ width: image.width, height: image.height }}
           resizeMode="contain"
-          onLoad={event => {
-            const { width, height } = event.nativeEvent.source;
-
-            const maxW = 350; 
-            const scale = width > maxW ? maxW / width : 1;
-            setImageDimensions({
-              width: Math.round(width * scale),
-              height: Math.round(height * scale),
-            });
-          }}
         />
       </View>
     );
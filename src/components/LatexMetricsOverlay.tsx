@@ -0,0 +1,138 @@
+import React from 'react';
+import { StyleSheet, Text, TouchableOpacity, View } from 'react-native';
+import NativeLatexMetrics from '../specs/NativeLatexMetrics';
+import type {
+  MetricsSnapshot,
+  PhaseStats,
+} from '../specs/NativeLatexMetrics';
+
+const REFRESH_INTERVAL_MS = 1000;
+
+const PHASES: ReadonlyArray<{ key: keyof MetricsSnapshot; label: string }> = [
+  { key: 'parse', label: 'Parse' },
+  { key: 'typeset', label: 'Typeset' },
+  { key: 'measure', label: 'Measure' },
+  { key: 'draw', label: 'Draw' },
+  { key: 'propToPixel', label: 'Prop→pixel' },
+  { key: 'queueWait', label: 'Queue wait' },
+];
+
+const formatMs = (value: number) => value.toFixed(value < 10 ? 2 : 1);
+
+// Hits/misses per cache, with the number of typesets and rasters performed,
+// then the render scheduler's drops, stale requests and queue depth
+const formatCounters = ({
+  counters,
+  queueDepth,
+  maxQueueDepth,
+}: MetricsSnapshot) =>
+  `parse ${counters.parseHits}/${counters.parseMisses} · ` +
+  `typeset ${counters.typesetHits}/${counters.typesetMisses} ` +
+  `(${counters.typesetCount}) · ` +
+  `raster ${counters.rasterHits}/${counters.rasterMisses} ` +
+  `(${counters.rasterCount}, disk ${counters.rasterDiskHits}) · ` +
+  `dropped ${counters.renderDropped} · stale ${counters.renderStale} · ` +
+  `queue ${queueDepth} (max ${maxQueueDepth})`;
+
+/**
+ * QA overlay showing native render latencies (p50/p95/p99 in ms) and cache
+ * counters, refreshed every second. Renders nothing if the module is missing.
+ */
+const LatexMetricsOverlay: React.FC = () => {
+  const [snapshot, setSnapshot] = React.useState<MetricsSnapshot | null>(
+    () => NativeLatexMetrics?.snapshot() ?? null,
+  );
+
+  React.useEffect(() => {
+    if (NativeLatexMetrics == null) {
+      return;
+    }
+    const interval = setInterval(
+      () => setSnapshot(NativeLatexMetrics?.snapshot() ?? null),
+      REFRESH_INTERVAL_MS,
+    );
+    return () => clearInterval(interval);
+  }, []);
+
+  const onReset = React.useCallback(() => {
+    NativeLatexMetrics?.reset();
+    setSnapshot(NativeLatexMetrics?.snapshot() ?? null);
+  }, []);
+
+  if (snapshot == null) {
+    return null;
+  }
+  return (
+    <View style={styles.overlay} pointerEvents="box-none">
+      <View style={styles.row}>
+        <Text style={[styles.cell, styles.label]}>ms</Text>
+        <Text style={styles.cell}>n</Text>
+        <Text style={styles.cell}>p50</Text>
+        <Text style={styles.cell}>p95</Text>
+        <Text style={styles.cell}>p99</Text>
+      </View>
+      {PHASES.map(({ key, label }) => {
+        const stats = snapshot[key] as PhaseStats;
+        return (
+          <View key={key} style={styles.row}>
+            <Text style={[styles.cell, styles.label]}>{label}</Text>
+            <Text style={styles.cell}>{stats.count}</Text>
+            <Text style={styles.cell}>{formatMs(stats.p50)}</Text>
+            <Text style={styles.cell}>{formatMs(stats.p95)}</Text>
+            <Text style={styles.cell}>{formatMs(stats.p99)}</Text>
+          </View>
+        );
+      })}
+      <Text style={styles.counters}>{formatCounters(snapshot)}</Text>
+      <TouchableOpacity onPress={onReset} style={styles.resetButton}>
+        <Text style={styles.resetText}>Reset</Text>
+      </TouchableOpacity>
+    </View>
+  );
+};
+
+const styles = StyleSheet.create({
+  overlay: {
+    position: 'absolute',
+    right: 8,
+    bottom: 8,
+    padding: 8,
+    borderRadius: 8,
+    backgroundColor: 'rgba(0, 0, 0, 0.75)',
+  },
+  row: {
+    flexDirection: 'row',
+  },
+  cell: {
+    width: 44,
+    fontSize: 11,
+    fontFamily: 'monospace',
+    color: '#ffffff',
+    textAlign: 'right',
+  },
+  label: {
+    width: 72,
+    textAlign: 'left',
+  },
+  counters: {
+    marginTop: 4,
+    maxWidth: 248,
+    fontSize: 10,
+    fontFamily: 'monospace',
+    color: '#cccccc',
+  },
+  resetButton: {
+    marginTop: 6,
+    alignSelf: 'flex-end',
+    paddingHorizontal: 8,
+    paddingVertical: 2,
+    borderRadius: 4,
+    backgroundColor: '#444444',
+  },
+  resetText: {
+    fontSize: 11,
+    color: '#ffffff',
+  },
+});
+
+export default LatexMetricsOverlay;
@@ -0,0 +1,61 @@
+import React, { memo } from 'react';
+import { Platform, Text, StyleSheet, ViewStyle } from 'react-native';
+import NativeLatexParagraphViewComponent from '../specs/NativeLatexParagraphViewNativeComponent';
+
+interface LatexParagraphProps {
+  // Raw paragraph with $...$ inline and $$...$$ display math
+  text: string;
+  // Text and math sizes share one unit (sp, like Text) and scale together
+  fontSize?: number;
+  mathFontSize?: number;
+  displayMathFontSize?: number;
+  textColor?: string;
+  style?: ViewStyle;
+}
+
+const NativeLatexParagraphView =
+  Platform.OS === 'android' ? NativeLatexParagraphViewComponent : null;
+
+/**
+ * Renders a paragraph of text and math in a single native view. Tokenizing,
+ * wrapping and baseline alignment all happen natively.
+ */
+const LatexParagraph: React.FC<LatexParagraphProps> = memo(
+  ({
+    text,
+    fontSize = 16,
+    mathFontSize = 20,
+    displayMathFontSize,
+    textColor = '#000000',
+    style,
+  }) => {
+    if (!NativeLatexParagraphView) {
+      return (
+        <Text style={[styles.fallback, { fontSize, color: textColor }, style]}>
+          {text}
+        </Text>
+      );
+    }
+
+    return (
+      <NativeLatexParagraphView
+        text={text}
+        fontSize={fontSize}
+        mathFontSize={mathFontSize}
+        displayMathFontSize={displayMathFontSize ?? 0}
+        textColor={textColor}
+        style={style}
+      />
+    );
+  },
+);
+
+LatexParagraph.displayName = 'LatexParagraph';
+
+const styles = StyleSheet.create({
+  fallback: {
+    fontFamily: 'monospace',
+  },
+});
+
+export default LatexParagraph;
@@ -1,12 +1,6 @@
 import React, { memo } from 'react';
-import {
-  requireNativeComponent,
-  Platform,
-  View,
-  Text,
-  StyleSheet,
-  ViewStyle,
-} from 'react-native';
+import { Platform, View, Text, StyleSheet, ViewStyle } from 'react-native';
+import NativeLatexViewComponent from '../specs/NativeLatexViewNativeComponent';
 
 interface LatexRendererProps {
   latex: string;
@@ -15,20 +9,12 @@ interface LatexRendererProps {
   style?: ViewStyle;
   onError?: (error: string) => void;
   showErrorInline?: boolean;
-}
-
-interface NativeLatexViewProps {
-  latex: string;
-  fontSize: number;
-  textColor: string;
-  style?: ViewStyle;
-  onLatexError?: (event: { nativeEvent: { error: string } }) => void;
+  renderAsync?: boolean;
+  renderMode?: 'vector' | 'bitmap';
 }
 
 const NativeLatexView =
-  Platform.OS === 'android'
-    ? requireNativeComponent<NativeLatexViewProps>('NativeLatexView')
-    : null;
+  Platform.OS === 'android' ? NativeLatexViewComponent : null;
 
 const validateLatex = (latex: string): string | null => {
   let braceCount = 0;
@@ -60,6 +46,8 @@ const LatexRenderer: React.FC<LatexRendererProps> = memo(
     style,
     onError,
     showErrorInline = false,
+    renderAsync = false,
+    renderMode = 'vector',
   }) => {
     const cleanLatex = React.useMemo(() => {
       let cleaned = latex.trim();
@@ -121,22 +109,14 @@ const LatexRenderer: React.FC<LatexRendererProps> = memo(
       );
     }
 
-    const minHeight = Math.ceil(fontSize * 2.5);
-    const estimatedWidth = Math.max(
-      fontSize * 5,
-      cleanLatex.length * fontSize * 0.7,
-    );
-
     return (
       <NativeLatexView
         latex={cleanLatex}
         fontSize={fontSize}
         textColor={textColor}
-        style={StyleSheet.flatten([
-          styles.container,
-          style,
-          { minHeight, minWidth: Math.min(estimatedWidth, 800) },
-        ])}
+        renderAsync={renderAsync}
+        renderMode={renderMode}
+        style={StyleSheet.flatten([styles.container, style])}
         onLatexError={handleNativeError}
       />
     );
@@ -8,9 +8,16 @@ import {
   View,
   TouchableOpacity,
   useColorScheme,
+  useWindowDimensions,
   StatusBar,
 } from 'react-native';
+import LatexParagraph from './LatexParagraph';
 import LatexRenderer from './LatexRenderer';
+import LatexMetricsOverlay from './LatexMetricsOverlay';
+import useLatexPrefetch from './useLatexPrefetch';
+import NativeLatexMeasure from '../specs/NativeLatexMeasure';
+import NativeLatexMetrics from '../specs/NativeLatexMetrics';
+import { parseContent } from '../utils/parseContent';
 
 interface PerformanceTestScreenProps {
   onBack: () => void;
@@ -19,124 +26,47 @@ interface PerformanceTestScreenProps {
 const TEST_CASE_15_CONTENT =
   'We now simplify $\\frac{(a_1 + a_2 + a_3 + \\cdots + a_n)^2}{\\sqrt{(b_1^2 + b_2^2 + \\cdots + b_n^2)(c_1^2 + c_2^2 + \\cdots + c_n^2)}}$ before proceeding further in the solution.';
 
+const TEXT_FONT_SIZE = 16;
+const LATEX_FONT_SIZE = 50;
 
-interface ContentPart {
-  type: 'text' | 'latex';
-  content: string;
-  display?: boolean;
-}
-
-const parseContent = (content: string): ContentPart[] => {
-  const parts: ContentPart[] = [];
-  let currentIndex = 0;
-
-  const displayRegex = /\$\$([\s\S]*?)\$\$/g;
-  const inlineRegex = /\$([^\$]+?)\$/g;
-
-  interface MathMatch {
-    start: number;
-    end: number;
-    content: string;
-    display: boolean;
-  }
-
-  const allMatches: MathMatch[] = [];
-  let match: RegExpExecArray | null;
-
-  while ((match = displayRegex.exec(content)) !== null) {
-    allMatches.push({
-      start: match.index,
-      end: match.index + match[0].length,
-      content: match[1].trim(),
-      display: true,
-    });
-  }
-
-  while ((match = inlineRegex.exec(content)) !== null) {
-    const insideDisplay = allMatches.some(
-      dm => match!.index > dm.start && match!.index < dm.end,
-    );
-    if (!insideDisplay) {
-      const afterDollar = match[1];
-      if (/^\d+(\.\d+)?$/.test(afterDollar.trim())) {
-        continue;
-      }
-      allMatches.push({
-        start: match.index,
-        end: match.index + match[0].length,
-        content: match[1].trim(),
-        display: false,
-      });
-    }
-  }
-
-  allMatches.sort((a, b) => a.start - b.start);
-
-  allMatches.forEach(m => {
-    if (m.start > currentIndex) {
-      parts.push({
-        type: 'text',
-        content: content.substring(currentIndex, m.start),
-      });
-    }
-    parts.push({
-      type: 'latex',
-      content: m.content,
-      display: m.display,
-    });
-    currentIndex = m.end;
-  });
-
-  if (currentIndex < content.length) {
-    parts.push({
-      type: 'text',
-      content: content.substring(currentIndex),
-    });
-  }
-
-  if (parts.length === 0) {
-    parts.push({ type: 'text', content });
-  }
-
-  return parts;
-};
+// Row geometry shared by the styles below and the item layout computation
+const ROW_PADDING = 16;
+const ITEM_NUMBER_LINE_HEIGHT = 16;
+const ITEM_NUMBER_MARGIN = 8;
+const SEPARATOR_HEIGHT = 1;
 
+// 'paragraph' draws each row in one NativeLatexParagraphView; 'views' keeps the
+// per-equation NativeLatexView rows that exercise the async scheduler and the
+// bitmap raster path
+type RowMode = 'paragraph' | 'views';
 
-const ContentRenderer = ({
+const EquationViewsRow = ({
   content,
   textColor,
 }: {
   content: string;
   textColor: string;
-}) => {
-  const parts = parseContent(content);
-
-  return (
-    <View style={styles.contentContainer}>
-      {parts.map((part, index) => {
-        if (part.type === 'text') {
-          return (
-            <Text key={index} style={[styles.text, { color: textColor }]}>
-              {part.content}
-            </Text>
-          );
-        } else {
-          return (
-            <LatexRenderer
-              key={index}
-              latex={part.content}
-              fontSize={part.display ? 50 : 50}
-              textColor={textColor}
-              style={part.display ? styles.displayMath : styles.inlineMath}
-              showErrorInline={true}
-            />
-          );
-        }
-      })}
-    </View>
-  );
-};
-
+}) => (
+  <View>
+    {parseContent(content).map((part, index) =>
+      part.type === 'text' ? (
+        <Text key={index} style={[styles.rowText, { color: textColor }]}>
+          {part.content}
+        </Text>
+      ) : (
+        <LatexRenderer
+          key={index}
+          latex={part.content}
+          fontSize={LATEX_FONT_SIZE}
+          textColor={textColor}
+          showErrorInline={true}
+          renderAsync={true}
+          renderMode="bitmap"
+        />
+      ),
+    )}
+  </View>
+);
 
 const generateTestData = () => {
   return Array.from({ length: 50 }, (_, index) => ({
@@ -153,7 +83,47 @@ const PerformanceTestScreen: React.FC<PerformanceTestScreenProps> = ({
   const backgroundColor = isDarkMode ? '#1a1a1a' : '#f5f5f5';
   const cardBackgroundColor = isDarkMode ? '#2d2d2d' : '#ffffff';
 
+  const { width: windowWidth } = useWindowDimensions();
+  const [showMetrics, setShowMetrics] = React.useState(false);
+  const [rowMode, setRowMode] = React.useState<RowMode>('paragraph');
   const testData = React.useMemo(() => generateTestData(), []);
+  const onViewableItemsChanged = useLatexPrefetch(testData, item =>
+    parseContent(item.content)
+      .filter(part => part.type === 'latex')
+      .map(part => ({ latex: part.content, fontSize: LATEX_FONT_SIZE })),
+  );
+
+  // Exact row layouts from the native paragraph layout, measured once up front
+  const itemLayouts = React.useMemo(() => {
+    if (NativeLatexMeasure == null) {
+      return null;
+    }
+    const paragraphWidth = windowWidth - 2 * ROW_PADDING;
+    const paragraphHeights = new Map<string, number>();
+    let offset = 0;
+    return testData.map((item, index) => {
+      let paragraphHeight = paragraphHeights.get(item.content);
+      if (paragraphHeight === undefined) {
+        paragraphHeight = NativeLatexMeasure.measureParagraph(
+          item.content,
+          TEXT_FONT_SIZE,
+          LATEX_FONT_SIZE,
+          0,
+          paragraphWidth,
+        ).height;
+        paragraphHeights.set(item.content, paragraphHeight);
+      }
+      const length =
+        2 * ROW_PADDING +
+        ITEM_NUMBER_LINE_HEIGHT +
+        ITEM_NUMBER_MARGIN +
+        paragraphHeight +
+        SEPARATOR_HEIGHT;
+      const layout = { length, offset, index };
+      offset += length;
+      return layout;
+    });
+  }, [testData, windowWidth]);
 
   return (
     <SafeAreaView style={[styles.container, { backgroundColor }]}>
@@ -172,13 +142,35 @@ const PerformanceTestScreen: React.FC<PerformanceTestScreenProps> = ({
           <Text
             style={[styles.subtitle, { color: isDarkMode ? '#888' : '#666' }]}
           >
-            Test Case 15 × 50 items
+            Test Case 15 × 50 items ·{' '}
+            {rowMode === 'paragraph' ? 'paragraph view' : 'equation views'}
           </Text>
         </View>
+        <TouchableOpacity
+          onPress={() =>
+            setRowMode(mode => (mode === 'paragraph' ? 'views' : 'paragraph'))
+          }
+          style={styles.metricsButton}
+        >
+          <Text style={[styles.backButtonText, { color: textColor }]}>
+            {rowMode === 'paragraph' ? 'Views' : 'Paragraph'}
+          </Text>
+        </TouchableOpacity>
+        {NativeLatexMetrics != null && (
+          <TouchableOpacity
+            onPress={() => setShowMetrics(value => !value)}
+            style={styles.metricsButton}
+          >
+            <Text style={[styles.backButtonText, { color: textColor }]}>
+              {showMetrics ? 'Hide metrics' : 'Metrics'}
+            </Text>
+          </TouchableOpacity>
+        )}
       </View>
 
       <FlatList
         data={testData}
+        extraData={rowMode}
         keyExtractor={item => item.id}
         renderItem={({ item }) => (
           <View style={[styles.item, { backgroundColor: cardBackgroundColor }]}>
@@ -190,7 +182,16 @@ const PerformanceTestScreen: React.FC<PerformanceTestScreenProps> = ({
             >
               Item #{item.id}
             </Text>
-            <ContentRenderer content={item.content} textColor={textColor} />
+            {rowMode === 'paragraph' ? (
+              <LatexParagraph
+                text={item.content}
+                fontSize={TEXT_FONT_SIZE}
+                mathFontSize={LATEX_FONT_SIZE}
+                textColor={textColor}
+              />
+            ) : (
+              <EquationViewsRow content={item.content} textColor={textColor} />
+            )}
           </View>
         )}
         ItemSeparatorComponent={() => <View style={styles.separator} />}
@@ -200,12 +201,15 @@ const PerformanceTestScreen: React.FC<PerformanceTestScreenProps> = ({
         maxToRenderPerBatch={5}
         windowSize={5}
         initialNumToRender={3}
-        getItemLayout={(_, index) => ({
-          length: 200,
-          offset: 200 * index,
-          index,
-        })}
+        onViewableItemsChanged={onViewableItemsChanged}
+        // Row heights are only known up front for paragraph rows
+        getItemLayout={
+          itemLayouts && rowMode === 'paragraph'
+            ? (_, index) => itemLayouts[index]
+            : undefined
+        }
       />
+      {showMetrics && <LatexMetricsOverlay />}
     </SafeAreaView>
   );
 };
@@ -232,6 +236,10 @@ const styles = StyleSheet.create({
   headerTextContainer: {
     flex: 1,
   },
+  metricsButton: {
+    paddingVertical: 8,
+    paddingLeft: 16,
+  },
   title: {
     fontSize: 20,
     fontWeight: 'bold',
@@ -244,34 +252,18 @@ const styles = StyleSheet.create({
     paddingBottom: 20,
   },
   item: {
-    padding: 16,
+    padding: ROW_PADDING,
   },
   itemNumber: {
     fontSize: 12,
-    marginBottom: 8,
-  },
-  contentContainer: {
-    flexDirection: 'column',
-  },
-  text: {
-    fontSize: 16,
-    lineHeight: 26,
-    marginVertical: 8,
-  },
-  displayMath: {
-    alignSelf: 'center',
-    marginVertical: 24,
-    paddingVertical: 12,
-    minHeight: 60,
+    lineHeight: ITEM_NUMBER_LINE_HEIGHT,
+    marginBottom: ITEM_NUMBER_MARGIN,
   },
-  inlineMath: {
-    alignSelf: 'flex-start',
-    marginVertical: 24,
-    paddingVertical: 12,
-    minHeight: 50,
+  rowText: {
+    fontSize: TEXT_FONT_SIZE,
   },
   separator: {
-    height: 1,
+    height: SEPARATOR_HEIGHT,
     backgroundColor: '#e0e0e0',
   },
 });
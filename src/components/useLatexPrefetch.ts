@@ -0,0 +1,69 @@
+import { useCallback, useEffect, useRef } from 'react';
+import { Platform } from 'react-native';
+import type { ViewToken } from 'react-native';
+import NativeLatexPrefetcher from '../specs/NativeLatexPrefetcher';
+
+export interface PrefetchEntry {
+  latex: string;
+  fontSize: number;
+}
+
+/**
+ * Warms the native parse/typeset caches for the rows just past the viewport.
+ *
+ * Returns an onViewableItemsChanged handler for a FlatList. Each time the
+ * visible window moves, the previous prefetch is cancelled and the next
+ * `lookahead` items are queued at low priority on the native side.
+ */
+const useLatexPrefetch = <T>(
+  data: ReadonlyArray<T>,
+  getEntries: (item: T) => PrefetchEntry[],
+  lookahead: number = 5,
+) => {
+  const tokens = useRef<number[]>([]);
+  const dataRef = useRef(data);
+  const getEntriesRef = useRef(getEntries);
+  dataRef.current = data;
+  getEntriesRef.current = getEntries;
+
+  const cancelAll = () => {
+    tokens.current.forEach(token => NativeLatexPrefetcher?.cancel(token));
+    tokens.current = [];
+  };
+
+  useEffect(() => cancelAll, []);
+
+  // FlatList does not allow this handler to change between renders
+  return useCallback(
+    ({ viewableItems }: { viewableItems: ViewToken[] }) => {
+      if (Platform.OS !== 'android' || NativeLatexPrefetcher == null) {
+        return;
+      }
+      const last = viewableItems.reduce(
+        (max, token) => Math.max(max, token.index ?? -1),
+        -1,
+      );
+      if (last < 0) {
+        return;
+      }
+
+      cancelAll();
+      const bySize = new Map<number, string[]>();
+      dataRef.current.slice(last + 1, last + 1 + lookahead).forEach(item => {
+        getEntriesRef.current(item).forEach(({ latex, fontSize }) => {
+          const list = bySize.get(fontSize) ?? [];
+          list.push(latex);
+          bySize.set(fontSize, list);
+        });
+      });
+      bySize.forEach((latexList, fontSize) => {
+        tokens.current.push(
+          NativeLatexPrefetcher!.prefetch(latexList, fontSize),
+        );
+      });
+    },
+    [lookahead],
+  );
+};
+
+export default useLatexPrefetch;
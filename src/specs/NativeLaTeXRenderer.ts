@@ -0,0 +1,46 @@
+import { TurboModuleRegistry } from 'react-native';
+import type { TurboModule } from 'react-native';
+
+export type RenderOptions = {
+  fontSize?: number;
+  textColor?: string;
+  // Rendered width is capped at maxWidth (dp), scaling the equation down
+  maxWidth?: number;
+  format?: string;
+};
+
+export type RenderResult = {
+  // file:// URI into the content-addressed image cache
+  uri: string;
+  // Intrinsic size in dp
+  width: number;
+  height: number;
+};
+
+export type RenderRequest = {
+  latex: string;
+  options: RenderOptions;
+  // Optional id that cancel() accepts while the render is pending
+  requestId?: number;
+};
+
+// One entry per request, in order: either the rendered image or an error
+export type RenderManyResult = {
+  uri?: string;
+  width?: number;
+  height?: number;
+  error?: string;
+  cancelled?: boolean;
+};
+
+export interface Spec extends TurboModule {
+  renderLaTeX(latex: string, options: RenderOptions): Promise<RenderResult>;
+  // Renders a batch in one call; identical requests are rendered once
+  renderMany(
+    requests: ReadonlyArray<RenderRequest>,
+  ): Promise<ReadonlyArray<RenderManyResult>>;
+  // Drops queued renders and stops running ones at the next phase boundary
+  cancel(requestIds: ReadonlyArray<number>): void;
+}
+
+export default TurboModuleRegistry.get<Spec>('LaTeXRenderer');
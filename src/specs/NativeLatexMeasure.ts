@@ -0,0 +1,36 @@
+import { TurboModuleRegistry } from 'react-native';
+import type { TurboModule } from 'react-native';
+
+export type LatexMeasureRequest = {
+  latex: string;
+  fontSize: number;
+};
+
+// All values in dp; erroneous equations report the size of the error box
+export type LatexMetrics = {
+  width: number;
+  height: number;
+  ascent: number;
+  descent: number;
+  error: boolean;
+};
+
+export type ParagraphMetrics = {
+  width: number;
+  height: number;
+};
+
+export interface Spec extends TurboModule {
+  measureLatex(latex: string, fontSize: number): LatexMetrics;
+  measureMany(requests: ReadonlyArray<LatexMeasureRequest>): Array<LatexMetrics>;
+  // Size of a LatexParagraph wrapped to maxWidth (dp)
+  measureParagraph(
+    text: string,
+    fontSize: number,
+    mathFontSize: number,
+    displayMathFontSize: number,
+    maxWidth: number,
+  ): ParagraphMetrics;
+}
+
+export default TurboModuleRegistry.get<Spec>('LatexMeasure');
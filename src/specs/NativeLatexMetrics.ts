@@ -0,0 +1,51 @@
+import { TurboModuleRegistry } from 'react-native';
+import type { TurboModule } from 'react-native';
+
+// Latencies in milliseconds, percentiles accurate to the histogram bucket
+export type PhaseStats = {
+  count: number;
+  mean: number;
+  p50: number;
+  p95: number;
+  p99: number;
+  max: number;
+};
+
+// Counts since the last reset()
+export type CacheCounters = {
+  parseHits: number;
+  parseMisses: number;
+  typesetHits: number;
+  typesetMisses: number;
+  typesetCount: number;
+  rasterHits: number;
+  rasterMisses: number;
+  rasterCount: number;
+  rasterDiskHits: number;
+  renderDropped: number;
+  renderStale: number;
+};
+
+export type MetricsSnapshot = {
+  parse: PhaseStats;
+  typeset: PhaseStats;
+  measure: PhaseStats;
+  draw: PhaseStats;
+  // From a content prop change being committed to the first draw showing it
+  propToPixel: PhaseStats;
+  // Time background renders waited in the render scheduler queue
+  queueWait: PhaseStats;
+  counters: CacheCounters;
+  // Render scheduler queue depth now, and the peak since launch
+  queueDepth: number;
+  maxQueueDepth: number;
+};
+
+export interface Spec extends TurboModule {
+  snapshot(): MetricsSnapshot;
+  reset(): void;
+  // Recent LatexTrace events, oldest first; only populated when tracing is enabled
+  dumpTrace(): string;
+}
+
+export default TurboModuleRegistry.get<Spec>('LatexMetrics');
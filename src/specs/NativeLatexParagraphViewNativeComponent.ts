@@ -0,0 +1,18 @@
+import { codegenNativeComponent } from 'react-native';
+import type { CodegenTypes, HostComponent, ViewProps } from 'react-native';
+
+export interface NativeProps extends ViewProps {
+  text: string;
+  // All sizes in sp, like Text: math scales with the body text
+  fontSize?: CodegenTypes.WithDefault<CodegenTypes.Float, 16>;
+  mathFontSize?: CodegenTypes.WithDefault<CodegenTypes.Float, 20>;
+  // 0 uses mathFontSize
+  displayMathFontSize?: CodegenTypes.WithDefault<CodegenTypes.Float, 0>;
+  textColor?: string;
+}
+
+// interfaceOnly: the C++ shadow node lives in android/app/src/main/jni/latex
+// so that Fabric can wrap paragraphs through LatexParagraphViewManager.measure()
+export default codegenNativeComponent<NativeProps>('NativeLatexParagraphView', {
+  interfaceOnly: true,
+}) as HostComponent<NativeProps>;
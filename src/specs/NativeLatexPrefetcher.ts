@@ -0,0 +1,10 @@
+import { TurboModuleRegistry } from 'react-native';
+import type { TurboModule } from 'react-native';
+
+export interface Spec extends TurboModule {
+  // Queues low priority parse/typeset work and returns a token for cancel()
+  prefetch(latexList: ReadonlyArray<string>, fontSize: number): number;
+  cancel(token: number): void;
+}
+
+export default TurboModuleRegistry.get<Spec>('LatexPrefetcher');
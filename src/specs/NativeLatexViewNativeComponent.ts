@@ -0,0 +1,21 @@
+import { codegenNativeComponent } from 'react-native';
+import type { CodegenTypes, HostComponent, ViewProps } from 'react-native';
+
+type LatexErrorEvent = Readonly<{
+  error: string;
+}>;
+
+export interface NativeProps extends ViewProps {
+  latex: string;
+  fontSize?: CodegenTypes.WithDefault<CodegenTypes.Float, 20>;
+  textColor?: string;
+  renderAsync?: CodegenTypes.WithDefault<boolean, false>;
+  renderMode?: CodegenTypes.WithDefault<'vector' | 'bitmap', 'vector'>;
+  onLatexError?: CodegenTypes.DirectEventHandler<LatexErrorEvent>;
+}
+
+// interfaceOnly: the C++ shadow node lives in android/app/src/main/jni/latex
+// so that Fabric can measure equations through LatexViewManager.measure()
+export default codegenNativeComponent<NativeProps>('NativeLatexView', {
+  interfaceOnly: true,
+}) as HostComponent<NativeProps>;
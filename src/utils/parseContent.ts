@@ -0,0 +1,87 @@
+export interface ContentPart {
+  type: 'text' | 'latex';
+  content: string;
+  display?: boolean;
+}
+
+/**
+ * Splits a paragraph into text and $...$ / $$...$$ math parts in JS.
+ *
+ * Rendering tokenizes natively (see LatexParagraph); this is only used where
+ * JS needs the equations up front, such as prefetching and the performance
+ * screen's per-equation rows.
+ */
+export const parseContent = (content: string): ContentPart[] => {
+  const parts: ContentPart[] = [];
+  let currentIndex = 0;
+
+  const displayRegex = /\$\$([\s\S]*?)\$\$/g;
+  const inlineRegex = /\$([^\$]+?)\$/g;
+
+  interface MathMatch {
+    start: number;
+    end: number;
+    content: string;
+    display: boolean;
+  }
+
+  const allMatches: MathMatch[] = [];
+  let match: RegExpExecArray | null;
+
+  while ((match = displayRegex.exec(content)) !== null) {
+    allMatches.push({
+      start: match.index,
+      end: match.index + match[0].length,
+      content: match[1].trim(),
+      display: true,
+    });
+  }
+
+  while ((match = inlineRegex.exec(content)) !== null) {
+    const insideDisplay = allMatches.some(
+      dm => match!.index > dm.start && match!.index < dm.end,
+    );
+    if (!insideDisplay) {
+      const afterDollar = match[1];
+      if (/^\d+(\.\d+)?$/.test(afterDollar.trim())) {
+        continue;
+      }
+      allMatches.push({
+        start: match.index,
+        end: match.index + match[0].length,
+        content: match[1].trim(),
+        display: false,
+      });
+    }
+  }
+
+  allMatches.sort((a, b) => a.start - b.start);
+
+  allMatches.forEach(m => {
+    if (m.start > currentIndex) {
+      parts.push({
+        type: 'text',
+        content: content.substring(currentIndex, m.start),
+      });
+    }
+    parts.push({
+      type: 'latex',
+      content: m.content,
+      display: m.display,
+    });
+    currentIndex = m.end;
+  });
+
+  if (currentIndex < content.length) {
+    parts.push({
+      type: 'text',
+      content: content.substring(currentIndex),
+    });
+  }
+
+  if (parts.length === 0) {
+    parts.push({ type: 'text', content });
+  }
+
+  return parts;
+};
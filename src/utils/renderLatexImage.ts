@@ -0,0 +1,123 @@
+import NativeLaTeXRenderer from '../specs/NativeLaTeXRenderer';
+import type {
+  RenderOptions,
+  RenderRequest,
+  RenderResult,
+} from '../specs/NativeLaTeXRenderer';
+
+export interface LatexImageRender {
+  promise: Promise<RenderResult>;
+  // Stops the native work if nobody else is waiting for the same image
+  cancel: () => void;
+}
+
+interface PendingRender {
+  request: RenderRequest;
+  state: 'queued' | 'sent' | 'settled';
+  resolve: (result: RenderResult) => void;
+  reject: (error: Error) => void;
+}
+
+let nextRequestId = 1;
+let queued: PendingRender[] = [];
+let cancelledIds: number[] = [];
+let flushScheduled = false;
+
+const settle = (entry: PendingRender, settleWith: () => void) => {
+  if (entry.state !== 'settled') {
+    entry.state = 'settled';
+    settleWith();
+  }
+};
+
+const flush = () => {
+  flushScheduled = false;
+  const batch = queued.filter(entry => entry.state === 'queued');
+  const cancels = cancelledIds;
+  queued = [];
+  cancelledIds = [];
+
+  if (NativeLaTeXRenderer == null) {
+    const error = new Error('LaTeXRenderer native module not available');
+    batch.forEach(entry => settle(entry, () => entry.reject(error)));
+    return;
+  }
+  if (cancels.length > 0) {
+    NativeLaTeXRenderer.cancel(cancels);
+  }
+  if (batch.length === 0) {
+    return;
+  }
+
+  batch.forEach(entry => {
+    entry.state = 'sent';
+  });
+  NativeLaTeXRenderer.renderMany(batch.map(entry => entry.request)).then(
+    results => {
+      batch.forEach((entry, index) => {
+        const result = results[index];
+        if (
+          result?.uri != null &&
+          result.width != null &&
+          result.height != null
+        ) {
+          const { uri, width, height } = result;
+          settle(entry, () => entry.resolve({ uri, width, height }));
+        } else {
+          const message = result?.error ?? 'Failed to render LaTeX';
+          settle(entry, () => entry.reject(new Error(message)));
+        }
+      });
+    },
+    (error: unknown) => {
+      const reason =
+        error instanceof Error ? error : new Error('Failed to render LaTeX');
+      batch.forEach(entry => settle(entry, () => entry.reject(reason)));
+    },
+  );
+};
+
+const scheduleFlush = () => {
+  if (!flushScheduled) {
+    flushScheduled = true;
+    Promise.resolve().then(flush);
+  }
+};
+
+/**
+ * Renders an equation to an image file through the native LaTeXRenderer.
+ *
+ * Calls made in the same tick, such as the effects of a list batch mounting,
+ * are coalesced into a single renderMany() bridge call. Cancelling a render
+ * that has not been sent yet never reaches native; cancelling one in flight
+ * is batched into a single cancel() call the same way.
+ */
+export const renderLatexImage = (
+  latex: string,
+  options: RenderOptions,
+): LatexImageRender => {
+  const requestId = nextRequestId++;
+  let resolve!: (result: RenderResult) => void;
+  let reject!: (error: Error) => void;
+  const promise = new Promise<RenderResult>((onResolve, onReject) => {
+    resolve = onResolve;
+    reject = onReject;
+  });
+  const pending: PendingRender = {
+    request: { latex, options, requestId },
+    state: 'queued',
+    resolve,
+    reject,
+  };
+  queued.push(pending);
+  scheduleFlush();
+
+  const cancel = () => {
+    if (pending.state === 'sent') {
+      cancelledIds.push(requestId);
+      scheduleFlush();
+    }
+    settle(pending, () => pending.reject(new Error('Render cancelled')));
+  };
+  return { promise, cancel };
+};